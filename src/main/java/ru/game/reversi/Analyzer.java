@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.BufferedWriter;
+import  java.io.IOException;
+import  java.io.UncheckedIOException;
+import  java.nio.charset.StandardCharsets;
+import  java.nio.file.Files;
+import  java.nio.file.Paths;
+import  java.util.HashMap;
+import  java.util.Map;
+import  java.util.concurrent.ArrayBlockingQueue;
+import  java.util.concurrent.BlockingQueue;
+import  java.util.concurrent.CompletionService;
+import  java.util.concurrent.ExecutionException;
+import  java.util.concurrent.ExecutorCompletionService;
+import  java.util.concurrent.ExecutorService;
+import  java.util.concurrent.Executors;
+import  java.util.concurrent.Semaphore;
+import  java.util.concurrent.atomic.AtomicLong;
+import  ru.game.reversi.Engine;
+import  ru.game.reversi.GameRecord;
+import  ru.game.reversi.GameRecordReader;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.Tournament;
+
+/*
+ * Headless batch analysis of every position in a game record file. A
+ * reader thread replays the games, a pool of workers with one engine each
+ * searches the positions, and a writer thread puts the results out in
+ * input order as CSV. The stages are joined by bounded queues, and the
+ * reader may only run a fixed window of positions ahead of the writer,
+ * so memory stays flat however large the input is. The limit per position
+ * is d<depth>, t<milliseconds> or n<nodes>.
+ *
+ * usage: analyze [records file] [output file] [limit] [endgame] [threads]
+ */
+public class Analyzer {
+
+    private static final int HASH_SIZE = 8;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int WINDOW = 4096;
+    private static final long REPORT_INTERVAL = 2000;
+
+    private static class Task {
+        long index;
+        int game;
+        int ply;
+        int size;
+        Position position;
+        int color;
+        int move;
+        int score;
+        int depth;
+        long nodes;
+    }
+
+    private static final Task END = new Task();
+
+    private String input;
+    private String output;
+    private String limit;
+    private int endgameEmpties;
+    private int threads;
+
+    private BlockingQueue<Task> positions;
+    private BlockingQueue<Task> results;
+    private Semaphore window;
+    private AtomicLong analyzed;
+    private long start;
+    private long reported;
+
+    public static void run(String args[]) {
+        Analyzer analyzer = new Analyzer();
+
+        analyzer.input = args.length > 1 ? args[1] : "games.rec";
+        analyzer.output = args.length > 2 ? args[2] : "analysis.csv";
+        analyzer.limit = args.length > 3 ? args[3] : "d6";
+        analyzer.endgameEmpties = args.length > 4 ? Integer.parseInt(args[4]) : 12;
+        analyzer.threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        analyzer.analyze();
+    }
+
+    private void analyze() {
+        positions = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        results = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        window = new Semaphore(WINDOW);
+        analyzed = new AtomicLong();
+        start = System.nanoTime();
+
+        System.out.printf("%s -> %s, limit %s, %d threads%n", input, output, limit, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 2, runnable -> {
+            Thread thread = new Thread(runnable, "reversi-analyze");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+
+        stages.submit(this::read, null);
+        stages.submit(this::write, null);
+        for (int k = 0; k < threads; k++)
+            stages.submit(this::work, null);
+
+        try {
+            for (int k = 0; k < threads + 2; k++)
+                stages.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d positions in %.1f s, %.1f positions/s%n", analyzed.get(), seconds,
+                          analyzed.get() / seconds);
+    }
+
+    private void read() {
+        GameRecord record = new GameRecord();
+        long index = 0;
+
+        try (GameRecordReader reader = new GameRecordReader(input)) {
+            for (int game = 0; reader.next(record); game++) {
+                int size = record.getSize();
+                int color = record.getFirstColor();
+                Position position = new Position(size);
+
+                for (int ply = 0; ply < record.getMoveCount(); ply++) {
+                    int move = record.getMove(ply);
+                    boolean legal = move == GameRecord.PASS
+                                  ? position.calculateAvailablePlaceCount(color) == 0
+                                  : position.isPlaceOn(move / size, move % size, color);
+
+                    if (!legal)
+                        throw new IllegalArgumentException(input + ": illegal move in game " + game + " at ply " + ply);
+
+                    if (move != GameRecord.PASS) {
+                        Task task = new Task();
+
+                        task.index = index++;
+                        task.game = game;
+                        task.ply = ply;
+                        task.size = size;
+                        task.position = new Position(position);
+                        task.color = color;
+
+                        window.acquire();
+                        positions.put(task);
+
+                        position.setStone(move / size, move % size, color);
+                    }
+
+                    color = Position.opponent(color);
+                }
+            }
+
+            for (int k = 0; k < threads; k++)
+                positions.put(END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work() {
+        Engine engine = new Engine(HASH_SIZE, 1, System.getProperty("reversi.weights"));
+
+        engine.setEndgameEmpties(endgameEmpties);
+        Tournament.setLimit(engine, limit);
+
+        try {
+            for (Task task = positions.take(); task != END; task = positions.take()) {
+                task.move = engine.calculateBestMove(task.position, task.color);
+                task.score = engine.getScore();
+                task.depth = engine.getDepth();
+                task.nodes = engine.getNodes();
+                task.position = null;
+
+                results.put(task);
+            }
+
+            results.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            engine.close();
+        }
+    }
+
+    /*
+     * Results come in any order; the ones ahead of the next index wait in
+     * a map, which the window keeps small.
+     */
+    private void write() {
+        Map<Long, Task> pending = new HashMap<>();
+        long next = 0;
+        long report = System.currentTimeMillis() + REPORT_INTERVAL;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            writer.write("game,ply,size,color,move,score,depth,nodes");
+            writer.newLine();
+
+            for (int ended = 0; ended < threads; ) {
+                Task task = results.take();
+
+                if (task == END) {
+                    ended++;
+                    continue;
+                }
+
+                pending.put(task.index, task);
+
+                for (task = pending.remove(next); task != null; task = pending.remove(++next)) {
+                    writer.write(task.game + "," + task.ply + "," + task.size + "," + task.color + ","
+                               + task.move + "," + task.score + "," + task.depth + "," + task.nodes);
+                    writer.newLine();
+
+                    analyzed.incrementAndGet();
+                    window.release();
+                }
+
+                if (System.currentTimeMillis() > report) {
+                    report += REPORT_INTERVAL;
+                    this.report(pending.size());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(int waiting) {
+        long count = analyzed.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d positions, %.1f positions/s (%.1f overall), queued %d, waiting for order %d%n",
+                          count, (count - reported) * 1000.0 / REPORT_INTERVAL, count / seconds,
+                          positions.size(), waiting);
+        reported = count;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.awt.event.*;
+import  javax.swing.*;
+import  ru.game.reversi.Board;
+
+/*
+ * Single frame clock for all flip animations of a board. Only the cells
+ * that are turning are tracked and repainted on each frame; the timer
+ * stops as soon as the last one has finished, so an idle board schedules
+ * no work at all.
+ */
+public class AnimationClock implements ActionListener {
+
+    public static final int DEFAULT_FPS = 60;
+    public static final long DEFAULT_DURATION = 300000000L;
+
+    private Board board;
+    private Timer timer;
+    private long duration;
+    private long frameTime;
+
+    private long start[];
+    private boolean active[];
+    private int cell[];
+    private int count;
+
+    public AnimationClock(Board board, int cells, int fps, long duration) {
+        this.board = board;
+        this.duration = duration;
+
+        start = new long[cells];
+        active = new boolean[cells];
+        cell = new int[cells];
+
+        timer = new Timer(Math.max(1, 1000 / fps), this);
+        timer.setCoalesce(true);
+    }
+
+    public void start(int index) {
+        if (!timer.isRunning())
+            frameTime = System.nanoTime();
+
+        start[index] = frameTime;
+
+        if (!active[index]) {
+            active[index] = true;
+            cell[count++] = index;
+        }
+
+        board.repaintCell(index);
+
+        if (!timer.isRunning())
+            timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+
+        for (int k = 0; k < count; k++)
+            active[cell[k]] = false;
+
+        count = 0;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        frameTime = System.nanoTime();
+
+        for (int k = 0; k < count; k++) {
+            int index = cell[k];
+            board.repaintCell(index);
+
+            if (frameTime - start[index] >= duration) {
+                active[index] = false;
+                cell[k--] = cell[--count];
+            }
+        }
+
+        if (count == 0)
+            timer.stop();
+    }
+
+    /*
+     * Progress of the cell's flip at the current frame, from 0 to 1; cells
+     * that are not turning are at 1.
+     */
+    public float getProgress(int index) {
+        if (!active[index])
+            return 1.0f;
+
+        return Math.min(1.0f, (float)(frameTime - start[index]) / duration);
+    }
+
+    public boolean isRunning() {
+        return timer.isRunning();
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.IOException;
+import  java.io.PrintWriter;
+import  java.io.UncheckedIOException;
+import  java.lang.management.ManagementFactory;
+import  java.util.function.IntUnaryOperator;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Engine;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.SamplePosition;
+
+/*
+ * Microbenchmarks of the rules kernels and the engine on early, middle and
+ * late positions of every board size. Each kernel is warmed up, then run
+ * in batches for the measuring time; the report gives the time and the
+ * heap allocation per call, measured with the thread allocation counter.
+ * Kernels whose name does not contain the filter are skipped.
+ *
+ * usage: bench [filter] [milliseconds] [csv file]
+ */
+public class Benchmark {
+
+    private static final int SIZES[] = { 6, 8, 16, 32 };
+    private static final String PHASES[] = { "early", "mid", "late" };
+    private static final int POSITIONS = 16;
+    private static final int BATCH = 64;
+    private static final long ENGINE_NODES = 20000;
+
+    private static volatile int sink;
+
+    private String filter;
+    private long time;
+    private PrintWriter csv;
+    private com.sun.management.ThreadMXBean threads;
+
+    private Position position[];
+    private int color[];
+    private int move[];
+
+    public static void run(String args[]) {
+        Benchmark benchmark = new Benchmark();
+
+        benchmark.filter = args.length > 1 ? args[1] : "";
+        benchmark.time = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            benchmark.threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+            benchmark.threads.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        try {
+            if (args.length > 3)
+                benchmark.csv = new PrintWriter(args[3], "UTF-8");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.printf("%-20s %5s %6s %14s %14s%n", "kernel", "size", "phase", "ns/op", "bytes/op");
+        if (benchmark.csv != null)
+            benchmark.csv.println("kernel,size,phase,ns_per_op,bytes_per_op");
+
+        for (int size : SIZES) {
+            for (int phase = 0; phase < PHASES.length; phase++)
+                benchmark.runKernels(size, phase);
+        }
+
+        if (benchmark.csv != null)
+            benchmark.csv.close();
+    }
+
+    private void runKernels(int size, int phase) {
+        this.createPositions(size, phase);
+
+        int squares = size * size;
+        int flips[] = new int[8 * size];
+        BitBoard board[] = new BitBoard[POSITIONS];
+        int moves[] = new int[squares];
+
+        for (int k = 0; k < POSITIONS; k++)
+            board[k] = BitBoard.create(position[k], color[k]);
+
+        this.measure("transformation", size, phase, k -> {
+            int m = move[k];
+            return position[k].calculateFlips(m / size, m % size, color[k], flips);
+        });
+
+        this.measure("transformationGain", size, phase, k -> {
+            int m = move[k];
+            return position[k].calculateTransformationGain(m / size, m % size, color[k]);
+        });
+
+        this.measure("availablePlace", size, phase, k -> position[k].generatePlaces(color[k], moves));
+
+        this.measure("generateMoves", size, phase, k -> board[k].generateMoves(moves, 0));
+
+        this.measure("copy", size, phase, k -> new Position(position[k]).getSize());
+
+        this.measure("setStone", size, phase, k -> {
+            int m = move[k];
+            Position copy = new Position(position[k]);
+
+            return copy.setStone(m / size, m % size, color[k], flips);
+        });
+
+        this.measure("setStoneUndo", size, phase, k -> {
+            int m = move[k];
+            int count = position[k].setStone(m / size, m % size, color[k], flips);
+            position[k].undo(flips);
+
+            return count;
+        });
+
+        this.measure("playUndo", size, phase, k -> {
+            int count = board[k].play(move[k]);
+            board[k].undo();
+
+            return count;
+        });
+
+        Engine engine = new Engine();
+        engine.setNodeLimit(ENGINE_NODES);
+        engine.setEndgameEmpties(0);
+
+        this.measure("calculateBestPlace", size, phase, k -> engine.calculateBestMove(position[k], color[k]));
+
+        engine.close();
+    }
+
+    private void createPositions(int size, int phase) {
+        int squares = size * size;
+        int plies = phase == 0 ? squares / 8 : phase == 1 ? squares / 2 : squares * 7 / 8 - 4;
+        int moves[] = new int[squares];
+
+        position = new Position[POSITIONS];
+        color = new int[POSITIONS];
+        move = new int[POSITIONS];
+
+        for (int k = 0, seed = 1; k < POSITIONS; seed++) {
+            SamplePosition sample = SamplePosition.create(size, plies, seed);
+            int count = BitBoard.create(sample.getPosition(), sample.getColor()).generateMoves(moves, 0);
+
+            if (count == 0)
+                continue;
+
+            position[k] = sample.getPosition();
+            color[k] = sample.getColor();
+            move[k] = moves[seed % count];
+            k++;
+        }
+    }
+
+    private void measure(String kernel, int size, int phase, IntUnaryOperator operation) {
+        if (!kernel.contains(filter))
+            return;
+
+        this.runBatches(operation, time / 2);
+
+        long thread = Thread.currentThread().getId();
+        long bytes = threads != null ? threads.getThreadAllocatedBytes(thread) : 0;
+        long start = System.nanoTime();
+        long calls = this.runBatches(operation, time);
+        long elapsed = System.nanoTime() - start;
+
+        double nanoseconds = (double)elapsed / calls;
+        double allocation = threads != null ? (double)(threads.getThreadAllocatedBytes(thread) - bytes) / calls : Double.NaN;
+
+        System.out.printf("%-20s %5d %6s %14.1f %14.1f%n", kernel, size, PHASES[phase], nanoseconds, allocation);
+        if (csv != null)
+            csv.printf("%s,%d,%s,%.1f,%.1f%n", kernel, size, PHASES[phase], nanoseconds, allocation);
+    }
+
+    private long runBatches(IntUnaryOperator operation, long milliseconds) {
+        long deadline = System.nanoTime() + milliseconds * 1000000;
+        long calls = 0;
+        int value = 0;
+
+        do {
+            for (int k = 0; k < BATCH; k++)
+                value += operation.applyAsInt(k % POSITIONS);
+
+            calls += BATCH;
+        } while (System.nanoTime() < deadline);
+
+        sink = value;
+        return calls;
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.Position;
+
+/*
+ * Search-side board. Stones are stored as bitsets relative to the side to
+ * move ("player" and "opponent"), squares are numbered i * size + j like
+ * in Position. Every play() and pass() is recorded in a preallocated
+ * journal so that undo() restores the previous state without allocation.
+ */
+public abstract class BitBoard {
+
+    protected int size;
+    protected int color;
+    protected int ply;
+    protected long hash;
+    protected long hashJournal[];
+
+    protected BitBoard(int size, int color) {
+        this.size = size;
+        this.color = color;
+    }
+
+    public static BitBoard create(Position position, int color) {
+        if (position.getSize() <= SmallBitBoard.WIDTH)
+            return new SmallBitBoard(position, color);
+
+        return new LargeBitBoard(position, color);
+    }
+
+    protected static int calculateJournalCapacity(Position position) {
+        int size = position.getSize();
+        int empty = size * size - position.calculateStoneCount(Position.BLACK)
+                                - position.calculateStoneCount(Position.WHITE);
+
+        return 2 * empty + 2;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getEmptyCount() {
+        return size * size - this.getStoneCount(Position.BLACK) - this.getStoneCount(Position.WHITE);
+    }
+
+    public abstract int generateMoves(int moves[], int offset);
+
+    public abstract int calculateMobility();
+
+    public abstract int calculateOpponentMobility();
+
+    public abstract boolean isMove(int square);
+
+    public abstract int calculateFlipCount(int square);
+
+    public abstract int play(int square);
+
+    public abstract void pass();
+
+    public abstract void undo();
+
+    public abstract int getStone(int square);
+
+    public abstract int getStoneCount(int color);
+
+    public abstract BitBoard copy();
+
+}
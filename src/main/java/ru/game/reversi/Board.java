@@ -24,15 +24,45 @@
 package ru.game.reversi;
 
 import  java.awt.*;
+import  java.awt.image.BufferedImage;
 import  javax.swing.*;
+import  ru.game.reversi.AnimationClock;
+import  ru.game.reversi.FrameStats;
+import  ru.game.reversi.Position;
 import  ru.game.reversi.Stone;
+import  ru.game.reversi.StoneSprites;
 
 public class Board extends JPanel {
 
+    private static final int HUD_X = 8;
+    private static final int HUD_Y = 8;
+    private static final int HUD_WIDTH = 260;
+    private static final int HUD_HEIGHT = 84;
+    private static final int HUD_INTERVAL = 500;
+    private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 160);
+    private static final Font HUD_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
     private int selectedPlace[];
-    private boolean place[][][];
+    private Position position;
     private Stone stone[][];
     private Color color[];
+    private int flips[];
+    private StoneSprites sprites;
+    private AnimationClock clock;
+    private BufferedImage background;
+    private int backgroundWidth;
+    private int backgroundHeight;
+    private boolean place[];
+    private FrameStats frameStats;
+    private boolean hudVisible;
+    private Timer hudTimer;
+    private String hudText[];
+    private int placesBefore[];
+    private int placesAfter[];
+    private int placesBeforeCount;
+    private int redoMove[];
+    private int redoColor[];
+    private int redoCount;
 
     private Stone.Color playerColor;
     private int size;
@@ -41,24 +71,27 @@ public class Board extends JPanel {
         this.playerColor = playerColor;
         this.size = size;
 
+        position = new Position(size);
         stone = new Stone[size][size];
-        place = new boolean[size][size][2];
+        flips = new int[8 * size];
+        place = new boolean[size * size];
+        placesBefore = new int[size * size];
+        placesAfter = new int[size * size];
+        redoMove = new int[size * size];
+        redoColor = new int[size * size];
+        sprites = new StoneSprites();
+        clock = new AnimationClock(this, size * size, Integer.getInteger("reversi.fps", AnimationClock.DEFAULT_FPS),
+                                   AnimationClock.DEFAULT_DURATION);
 
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
                 stone[i][j] = null;
-                place[i][j][0] = false;
-                place[i][j][1] = false;
+
+                if (position.isStoneOn(i, j))
+                    stone[i][j] = new Stone(toStoneColor(position.getColor(i, j)));
             }
         }
 
-        int center = size / 2;
-        stone[center - 0][center - 1] = new Stone(Stone.Color.BLACK);
-        stone[center - 0][center - 0] = new Stone(Stone.Color.WHITE);
-        stone[center - 1][center - 1] = new Stone(Stone.Color.WHITE);
-        stone[center - 1][center - 0] = new Stone(Stone.Color.BLACK);
-        this.calculateAvailablePlace();
-
         selectedPlace = new int[2];
         selectedPlace[0] = -1;
         selectedPlace[1] = -1;
@@ -66,14 +99,32 @@ public class Board extends JPanel {
         color = new Color[2];
         color[0] = new Color(0x008a00);
         color[1] = new Color(0x008200);
+
+        frameStats = new FrameStats();
+        hudTimer = new Timer(HUD_INTERVAL, e -> this.updateHud());
+        hudText = new String[4];
     }
 
-    private void paint(Graphics2D g) {
-        Dimension dimension = this.getSize();
-        int width  = dimension.width  / size;
-        int height = dimension.height / size;
+    public static int toColor(Stone.Color color) {
+        return color == Stone.Color.WHITE ? Position.WHITE : Position.BLACK;
+    }
 
-        boolean repaint = false;
+    public static Stone.Color toStoneColor(int color) {
+        return color == Position.WHITE ? Stone.Color.WHITE : Stone.Color.BLACK;
+    }
+
+    private void createBackground(int width, int height) {
+        GraphicsConfiguration configuration = this.getGraphicsConfiguration();
+        int imageWidth  = width  * size + 1;
+        int imageHeight = height * size + 1;
+
+        background = configuration != null
+                   ? configuration.createCompatibleImage(imageWidth, imageHeight)
+                   : new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+        backgroundWidth = width;
+        backgroundHeight = height;
+
+        Graphics2D g = background.createGraphics();
         boolean colorID = true;
 
         for (int i = 0; i < size; i++) {
@@ -84,7 +135,41 @@ public class Board extends JPanel {
                 g.setColor(Color.BLACK);
                 g.drawRect(width * j, height * i, width, height);
 
-                if (place[i][j][playerColor == Stone.Color.WHITE ? 1 : 0]) {
+                colorID = !colorID;
+            }
+            colorID = !colorID;
+        }
+
+        g.dispose();
+    }
+
+    private void paint(Graphics2D g) {
+        Dimension dimension = this.getSize();
+        int width  = dimension.width  / size;
+        int height = dimension.height / size;
+
+        if (width < 1 || height < 1)
+            return;
+
+        if (background == null || width != backgroundWidth || height != backgroundHeight)
+            this.createBackground(width, height);
+
+        sprites.prepare(this.getGraphicsConfiguration(), width, height);
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, dimension.width, dimension.height);
+
+        g.drawImage(background, 0, 0, null);
+
+        int firstI = Math.max(0, clip.y / height);
+        int firstJ = Math.max(0, clip.x / width);
+        int lastI  = Math.min(size - 1, (clip.y + clip.height) / height);
+        int lastJ  = Math.min(size - 1, (clip.x + clip.width) / width);
+
+        for (int i = firstI; i <= lastI; i++) {
+            for (int j = firstJ; j <= lastJ; j++) {
+                if (this.isPlaceOn(i, j, playerColor)) {
                     int minSize = width < height ? width : height;
                     int placeWidth  = (int)(minSize * 0.75);
                     int placeHeight = (int)(minSize * 0.75);
@@ -100,269 +185,243 @@ public class Board extends JPanel {
                     g.drawOval(placeX, placeY, placeWidth, placeHeight);
                 }
 
-                if (this.isStoneOn(i, j)) {
-                    Stone stone = this.getStone(i, j);
-                    stone.draw(g, width * j, height * i, width, height);
-
-                    if (stone.isAnimation())
-                        repaint = true;
-                }
-
-                colorID = !colorID;
+                if (this.isStoneOn(i, j))
+                    this.getStone(i, j).draw(g, sprites, width * j, height * i, clock.getProgress(i * size + j));
             }
-            colorID = !colorID;
         }
+    }
 
-        if (repaint)
-            this.repaint();
+    /*
+     * Paint statistics drawn over the top-left corner of the board. The text
+     * is formatted twice a second by the HUD timer, so painting the HUD only
+     * draws the cached lines and does not allocate.
+     */
+    private void updateHud() {
+        hudText[0] = String.format("fps %d, frames %d", frameStats.getFramesPerSecond(), frameStats.getFrameCount());
+        hudText[1] = String.format("paint %.2f ms, p99 %.2f ms", frameStats.getLastDuration() / 1e6,
+                                   frameStats.getPercentile(0.99) / 1e6);
+        hudText[2] = String.format("area %d px, %.0f px avg", frameStats.getLastArea(), frameStats.getAverageArea());
+        hudText[3] = String.format("repaints %d, %.1f per frame", frameStats.getRequestCount(),
+                                   frameStats.getAverageRequests());
+
+        this.repaint(HUD_X, HUD_Y, HUD_WIDTH, HUD_HEIGHT);
     }
 
-    private void calculateAvailablePlace() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                for (int k = 0; k < 2; k++) {
-                    Stone.Color color = Stone.Color.BLACK;
+    private void paintHud(Graphics2D g) {
+        g.setColor(HUD_BACKGROUND);
+        g.fillRect(HUD_X, HUD_Y, HUD_WIDTH, HUD_HEIGHT);
 
-                    if (k > 0)
-                        color = Stone.Color.WHITE;
+        g.setColor(Color.WHITE);
+        g.setFont(HUD_FONT);
 
-                    int gain = calculateTransformationGain(i, j, color);
-                    place[i][j][k] = !this.isStoneOn(i, j) && gain > 0;
-                }
-            }
-        }
+        for (int k = 0; k < hudText.length; k++)
+            g.drawString(hudText[k], HUD_X + 8, HUD_Y + 18 + 16 * k);
     }
 
-    public int calculateAvailablePlaceCount(Stone.Color color) {
-        int count = 0;
+    public void setHudVisible(boolean visible) {
+        hudVisible = visible;
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (place[i][j][color == Stone.Color.WHITE ? 1 : 0])
-                    count++;
-            }
+        if (visible) {
+            hudTimer.start();
+            this.updateHud();
+        } else {
+            hudTimer.stop();
+            this.repaint(HUD_X, HUD_Y, HUD_WIDTH, HUD_HEIGHT);
         }
-
-        return count;
     }
 
-    public boolean[][] calculateTransformation(int i, int j, Stone.Color color) {
-        boolean transform[][] = new boolean[size][size];
+    public void setFrameStats(FrameStats frameStats) {
+        this.frameStats = frameStats;
+    }
 
-        int stoneID = -1;
-        for (int k = j - 1; k >= 0; k--) {
-            if (this.isStoneOn(i, k)) {
-                if (this.getStone(i, k).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
 
-        if (stoneID > -1) {
-            for (int k = j - 1; k > stoneID; k--)
-                transform[i][k] = true;
-        }
-       
-        stoneID = -1;
-        for (int k = j + 1; k < size; k++) {
-            if (this.isStoneOn(i, k)) {
-                if (this.getStone(i, k).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+    @Override
+    public void repaint(long time, int x, int y, int width, int height) {
+        if (frameStats != null)
+            frameStats.addRepaintRequest();
 
-        if (stoneID > -1) {
-            for (int k = j + 1; k < stoneID; k++)
-                transform[i][k] = true;
-        }
+        super.repaint(time, x, y, width, height);
+    }
 
-        stoneID = -1;
-        for (int k = i - 1; k >= 0; k--) {
-            if (this.isStoneOn(k, j)) {
-                if (this.getStone(k, j).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+    public void repaintCell(int index) {
+        Dimension dimension = this.getSize();
+        int width  = dimension.width  / size;
+        int height = dimension.height / size;
 
-        if (stoneID > -1) {
-            for (int k = i - 1; k > stoneID; k--)
-                transform[k][j] = true;
-        }
+        this.repaint(width * (index % size), height * (index / size), width + 1, height + 1);
+    }
 
-        stoneID = -1;
-        for (int k = i + 1; k < size; k++) {
-            if (this.isStoneOn(k, j)) {
-                if (this.getStone(k, j).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+    public int calculateAvailablePlaceCount(Stone.Color color) {
+        return position.calculateAvailablePlaceCount(toColor(color));
+    }
 
-        if (stoneID > -1) {
-            for (int k = i + 1; k < stoneID; k++)
-                transform[k][j] = true;
-        }
+    public int calculateFlips(int i, int j, Stone.Color color, int flips[]) {
+        return position.calculateFlips(i, j, toColor(color), flips);
+    }
 
-        stoneID = -1;
-        for (int k = i - 1, l = j - 1; k >= 0 && l >= 0; k--, l--) {
-            if (this.isStoneOn(k, l)) {
-                if (this.getStone(k, l).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+    public int calculateTransformationGain(int i, int j, Stone.Color color) {
+        return position.calculateTransformationGain(i, j, toColor(color));
+    }
 
-        if (stoneID > -1) {
-            for (int k = i - 1, l = j - 1; k > stoneID; k--, l--)
-                transform[k][l] = true;
-        }
+    public Stone.Color calculateWinningColor() {
+        return toStoneColor(position.calculateWinningColor());
+    }
 
-        stoneID = -1;
-        for (int k = i + 1, l = j + 1; k < size && l < size; k++, l++) {
-            if (this.isStoneOn(k, l)) {
-                if (this.getStone(k, l).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+    public boolean isPlaceOn(int i, int j, Stone.Color color) {
+        return position.isPlaceOn(i, j, toColor(color));
+    }
 
-        if (stoneID > -1) {
-            for (int k = i + 1, l = j + 1; k < stoneID; k++, l++)
-                transform[k][l] = true;
-        }
+    public void setSelectedPlace(int i, int j) {
+        if (i == selectedPlace[0] && j == selectedPlace[1])
+            return;
 
-        stoneID = -1;
-        for (int k = i - 1, l = j + 1; k >= 0 && l < size; k--, l++) {
-            if (this.isStoneOn(k, l)) {
-                if (this.getStone(k, l).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+        if (selectedPlace[0] >= 0)
+            this.repaintCell(selectedPlace[0] * size + selectedPlace[1]);
 
-        if (stoneID > -1) {
-            for (int k = i - 1, l = j + 1; k > stoneID; k--, l++)
-                transform[k][l] = true;
-        }
+        selectedPlace[0] = i;
+        selectedPlace[1] = j;
 
-        stoneID = -1;
-        for (int k = i + 1, l = j - 1; k < size && l >= 0; k++, l--) {
-            if (this.isStoneOn(k, l)) {
-                if (this.getStone(k, l).getColor() == color) {
-                    stoneID = k;
-                    break;
-                }
-            } else
-                break;
-        }
+        if (i >= 0)
+            this.repaintCell(i * size + j);
+    }
 
-        if (stoneID > -1) {
-            for (int k = i + 1, l = j - 1; k < stoneID; k++, l--)
-                transform[k][l] = true;
-        }
+    public boolean isStoneOn(int i, int j) {
+        return position.isStoneOn(i, j);
+    }
 
-        return transform;
+    public void setStone(int i, int j, Stone.Color color) {
+        redoCount = 0;
+        this.placeStone(i * size + j, color);
     }
 
-    public int calculateTransformationGain(int i, int j, Stone.Color color) {
-        boolean transformation[][] = calculateTransformation(i, j, color);
-        int gain = 0;
+    private void placeStone(int square, Stone.Color color) {
+        this.markPlaces();
 
-        for (i = 0; i < size; i++) {
-            for (j = 0; j < size; j++) {
-                if (transformation[i][j])
-                    gain++;
-            }
-        }
+        int count = position.setStone(square / size, square % size, toColor(color), flips);
+        stone[square / size][square % size] = new Stone(color);
+        this.repaintCell(square);
+        this.repaintChangedPlaces();
 
-        return gain;
+        for (int k = 0; k < count; k++) {
+            stone[flips[k] / size][flips[k] % size].setColor(color);
+            clock.start(flips[k]);
+        }
     }
 
-    public Stone.Color calculateWinningColor() {
-        int colorCount[] = new int[2];
+    /*
+     * Takes back the last move through the position journal; the stones
+     * flip back with the usual animation and the move can be redone.
+     */
+    public boolean undo() {
+        if (position.getMoveCount() == 0)
+            return false;
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (this.isStoneOn(i, j)) {
-                    Stone.Color color = this.getStone(i, j).getColor();
-                    colorCount[color == Stone.Color.WHITE ? 1 : 0]++;
-                }
-            }
+        int square = position.getLastMove();
+        int color = position.getLastColor();
+
+        this.markPlaces();
+
+        int count = position.undo(flips);
+        stone[square / size][square % size] = null;
+        this.repaintCell(square);
+        this.repaintChangedPlaces();
+
+        for (int k = 0; k < count; k++) {
+            stone[flips[k] / size][flips[k] % size].setColor(toStoneColor(Position.opponent(color)));
+            clock.start(flips[k]);
         }
 
-        Stone.Color color = Stone.Color.BLACK;
+        redoMove[redoCount] = square;
+        redoColor[redoCount] = color;
+        redoCount++;
+
+        return true;
+    }
+
+    /* plays the last undone move again and returns its square, or -1 */
+    public int redo() {
+        if (redoCount == 0)
+            return -1;
 
-        if (colorCount[1] > colorCount[0])
-            color = Stone.Color.WHITE;
+        redoCount--;
+        this.placeStone(redoMove[redoCount], toStoneColor(redoColor[redoCount]));
 
-        return color;
+        return redoMove[redoCount];
     }
 
-    public boolean isPlaceOn(int i, int j, Stone.Color color) {
-        if (i < 0 || i < 0 || i >= size || j >= size)
-            return false;
+    public boolean canUndo() {
+        return position.getMoveCount() > 0;
+    }
 
-        return place[i][j][color == Stone.Color.WHITE ? 1 : 0];
+    public boolean canRedo() {
+        return redoCount > 0;
     }
 
-    public void setSelectedPlace(int i, int j) {
-        if (i == selectedPlace[0] && j == selectedPlace[1])
-            return;
+    /* color of the last move, null before the first one */
+    public Stone.Color getLastColor() {
+        return position.getMoveCount() > 0 ? toStoneColor(position.getLastColor()) : null;
+    }
 
-        selectedPlace[0] = i;
-        selectedPlace[1] = j;
-        this.repaint();
+    public Stone.Color getRedoColor() {
+        return redoCount > 0 ? toStoneColor(redoColor[redoCount - 1]) : null;
     }
 
-    public boolean isStoneOn(int i, int j) {
-        if (i < 0 || j < 0 || i >= size || j >= size)
-            return false;
+    private void markPlaces() {
+        placesBeforeCount = position.generatePlaces(toColor(playerColor), placesBefore);
 
-        return stone[i][j] != null;
+        for (int k = 0; k < placesBeforeCount; k++)
+            place[placesBefore[k]] = true;
     }
 
-    public void setStone(int i, int j, Stone.Color color) {
-        stone[i][j] = new Stone(color);
+    /* repaints the places of the player that appeared or disappeared since markPlaces() */
+    private void repaintChangedPlaces() {
+        int after = position.generatePlaces(toColor(playerColor), placesAfter);
 
-        boolean transformation[][] = this.calculateTransformation(i, j, color);
+        for (int k = 0; k < after; k++) {
+            if (place[placesAfter[k]])
+                place[placesAfter[k]] = false;
+            else
+                this.repaintCell(placesAfter[k]);
+        }
 
-        for (i = 0; i < size; i++) {
-            for (j = 0; j < size; j++) {
-                if (transformation[i][j])
-                    stone[i][j].setColor(color);
+        for (int k = 0; k < placesBeforeCount; k++) {
+            if (place[placesBefore[k]]) {
+                place[placesBefore[k]] = false;
+                this.repaintCell(placesBefore[k]);
             }
         }
-        
-        this.calculateAvailablePlace();
     }
 
     public Stone getStone(int i, int j) {
         return stone[i][j];
     }
 
+    public AnimationClock getAnimationClock() {
+        return clock;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
     public int getSizeInPlaces() {
         return size;
     }
 
     @Override
     public void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        Rectangle clip = g.getClipBounds();
+
         this.paint((Graphics2D)g);
+        if (hudVisible)
+            this.paintHud((Graphics2D)g);
+
+        long area = clip != null ? (long)clip.width * clip.height : (long)this.getWidth() * this.getHeight();
+        frameStats.addFrame(start, System.nanoTime(), area);
     }
 
 }
@@ -0,0 +1,226 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.IOException;
+import  java.io.UncheckedIOException;
+import  java.nio.ByteBuffer;
+import  java.nio.channels.FileChannel;
+import  java.nio.file.Files;
+import  java.nio.file.Path;
+import  java.nio.file.Paths;
+import  java.nio.file.StandardCopyOption;
+import  java.nio.file.StandardOpenOption;
+import  java.util.Arrays;
+import  java.util.HashSet;
+import  java.util.Set;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.OpeningBook;
+import  ru.game.reversi.PatternEvaluator;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.Search;
+import  ru.game.reversi.TranspositionTable;
+
+/*
+ * Builds the opening book: every position reachable from the start in the
+ * given number of plies is stored once per symmetry class, with all its
+ * moves scored by a fixed-depth search of the resulting position. Books
+ * for other board sizes already in the file are kept.
+ *
+ * usage: book [file] [size] [plies] [depth]
+ */
+public class BookBuilder {
+
+    private int size;
+    private int depth;
+    private Search search;
+    private TranspositionTable table;
+    private Set<Long> visited;
+    private long hash[];
+
+    private long key[];
+    private short entry[][];
+    private int count;
+
+    public static void run(String args[]) {
+        String file = args.length > 1 ? args[1] : "reversi.book";
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int plies = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+
+        BookBuilder builder = new BookBuilder(size, depth);
+
+        try {
+            builder.read(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long start = System.nanoTime();
+        builder.expand(new Position(size), Position.WHITE, plies);
+        System.out.printf("%d positions, %.1f s%n", builder.visited.size(), (System.nanoTime() - start) / 1e9);
+
+        try {
+            builder.write(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.println(builder.count + " book moves written to " + file);
+    }
+
+    private BookBuilder(int size, int depth) {
+        this.size = size;
+        this.depth = depth;
+
+        table = new TranspositionTable(64);
+        search = new Search(new PatternEvaluator(PatternEvaluator.loadWeights(System.getProperty("reversi.weights"))),
+                            table);
+        search.setDepthLimit(depth);
+        visited = new HashSet<>();
+        hash = new long[8];
+
+        key = new long[1024];
+        entry = new short[1024][];
+    }
+
+    private void read(String file) throws IOException {
+        if (!Files.isRegularFile(Paths.get(file)))
+            return;
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(Paths.get(file)));
+        if (buffer.getInt(0) != OpeningBook.MAGIC || buffer.getInt(4) != OpeningBook.VERSION)
+            throw new IllegalArgumentException(file + ": not an opening book");
+
+        for (int k = 0, total = buffer.getInt(8); k < total; k++) {
+            int offset = OpeningBook.HEADER_SIZE + k * OpeningBook.ENTRY_SIZE;
+
+            if (buffer.getShort(offset + 8) != size) {
+                this.add(buffer.getLong(offset), buffer.getShort(offset + 8), buffer.getShort(offset + 10),
+                         buffer.getShort(offset + 12), buffer.getShort(offset + 14));
+            }
+        }
+    }
+
+    private void add(long hash, int size, int move, int score, int depth) {
+        if (count == key.length) {
+            key = Arrays.copyOf(key, 2 * count);
+            entry = Arrays.copyOf(entry, 2 * count);
+        }
+
+        key[count] = hash;
+        entry[count] = new short[] { (short)size, (short)move, (short)score, (short)depth };
+        count++;
+    }
+
+    private void expand(Position position, int color, int plies) {
+        if (plies == 0)
+            return;
+
+        if (position.calculateAvailablePlaceCount(color) == 0) {
+            if (position.calculateAvailablePlaceCount(Position.opponent(color)) != 0)
+                this.expand(position, Position.opponent(color), plies);
+
+            return;
+        }
+
+        int symmetry = OpeningBook.calculateSymmetry(position, color, hash);
+        if (!visited.add(hash[0]))
+            return;
+
+        long canonical = hash[0];
+
+        for (int square = 0; square < size * size; square++) {
+            if (!position.isPlaceOn(square / size, square % size, color))
+                continue;
+
+            position.setStone(square / size, square % size, color);
+
+            int score = -this.evaluate(position, Position.opponent(color));
+            score = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+            this.add(canonical, size, OpeningBook.transform(square, size, symmetry), score, depth);
+
+            this.expand(position, Position.opponent(color), plies - 1);
+            position.undo();
+        }
+    }
+
+    private int evaluate(Position position, int color) {
+        BitBoard board = BitBoard.create(position, color);
+
+        if (board.calculateMobility() == 0) {
+            if (board.calculateOpponentMobility() == 0) {
+                int difference = board.getStoneCount(color) - board.getStoneCount(Position.opponent(color));
+                return difference * Search.SCORE_DISC;
+            }
+
+            return -this.evaluate(position, Position.opponent(color));
+        }
+
+        table.nextAge();
+        int move = search.search(board);
+
+        if (search.getDepth() == 0) {
+            position.setStone(move / size, move % size, color);
+            int score = -this.evaluate(position, Position.opponent(color));
+            position.undo();
+
+            return score;
+        }
+
+        return search.getBestScore();
+    }
+
+    private void write(String file) throws IOException {
+        Integer order[] = new Integer[count];
+        for (int k = 0; k < count; k++)
+            order[k] = k;
+
+        Arrays.sort(order, (a, b) -> Long.compareUnsigned(key[a], key[b]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_SIZE + count * OpeningBook.ENTRY_SIZE);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(count).putInt(0);
+
+        for (int k = 0; k < count; k++) {
+            short value[] = entry[order[k]];
+
+            buffer.putLong(key[order[k]]);
+            for (int l = 0; l < value.length; l++)
+                buffer.putShort(value[l]);
+        }
+        buffer.flip();
+
+        Path path = Paths.get(file).toAbsolutePath();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
@@ -23,40 +23,207 @@
 
 package ru.game.reversi;
 
+import  java.nio.file.Files;
+import  java.nio.file.Paths;
+import  java.util.concurrent.ExecutorService;
+import  java.util.concurrent.Executors;
+import  java.util.concurrent.Future;
+import  java.util.function.Consumer;
 import  ru.game.reversi.Board;
+import  ru.game.reversi.Engine;
+import  ru.game.reversi.OpeningBook;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.Search;
 import  ru.game.reversi.Stone;
 
+/*
+ * The computer side of the game. Moves are calculated on a single background
+ * thread on a copy of the board, so the window stays responsive while the
+ * engine thinks; a started calculation can be cancelled at any time.
+ *
+ * With pondering on, the computer guesses the player's reply after its own
+ * move and already searches the position after it. If the player makes that
+ * move, the running search is taken over and usually answers at once;
+ * otherwise it is stopped and the new search still finds its results in the
+ * transposition table.
+ */
 public class ComputerPlayer {
 
+    private static class Request {
+
+        private Position position;
+        private Search.Listener listener;
+        private Consumer<int[]> result;
+        private int place[];
+        private boolean pondering;
+        private volatile boolean cancelled;
+
+        Request(Position position, Search.Listener listener, Consumer<int[]> result) {
+            this.position = position;
+            this.listener = listener;
+            this.result = result;
+            pondering = result == null;
+        }
+
+        synchronized void update(int depth, int move, int score, long nodes) {
+            if (listener != null && !cancelled)
+                listener.update(depth, move, score, nodes);
+        }
+
+        synchronized void finish(int place[]) {
+            if (cancelled)
+                return;
+
+            if (result != null)
+                result.accept(place);
+            else
+                this.place = place;
+        }
+
+        synchronized void attach(Search.Listener listener, Consumer<int[]> result) {
+            this.listener = listener;
+            this.result = result;
+            pondering = false;
+
+            if (place != null)
+                result.accept(place);
+        }
+
+    }
+
     private Stone.Color color;
+    private Engine engine;
+    private ExecutorService executor;
+    private Request request;
+    private Future<?> thinking;
+    private boolean ponder;
 
     public ComputerPlayer(Stone.Color color) {
         this.color = color;
+
+        engine = new Engine(Integer.getInteger("reversi.hash", Engine.DEFAULT_HASH_SIZE),
+                            Integer.getInteger("reversi.threads", 1),
+                            System.getProperty("reversi.weights"));
+        engine.setTimeLimit(Long.getLong("reversi.time", 500));
+        engine.setNodeLimit(Long.getLong("reversi.nodes", 0));
+        engine.setEndgameEmpties(Integer.getInteger("reversi.endgame", Engine.DEFAULT_ENDGAME_EMPTIES));
+        ponder = Boolean.getBoolean("reversi.ponder");
+
+        String book = System.getProperty("reversi.book");
+        if (book != null && Files.isRegularFile(Paths.get(book)))
+            engine.setBook(new OpeningBook(book));
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reversi-computer");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public int[] calculateBestPlace(Board board) {
-        int place[] = new int[] { -1, -1 };
-        int maxGain = 0;
+    /*
+     * Starts calculating a move for the current board in the background.
+     * The listener gets the progress of every finished search iteration and
+     * the result gets the place, both on the background thread; nothing is
+     * reported once the calculation is cancelled.
+     */
+    public void startThinking(Board board, Search.Listener listener, Consumer<int[]> result) {
+        Position position = new Position(board.getPosition());
+
+        if (request != null && request.position.isSameStones(position)) {
+            Request current = request;
+
+            synchronized (current) {
+                current.attach(listener, result);
+                engine.setPondering(false);
+            }
+
+            return;
+        }
+
+        this.submit(new Request(position, listener, result));
+    }
+
+    /*
+     * Starts searching the position after the predicted reply of the
+     * player, if pondering is enabled; called after the computer's move.
+     */
+    public void startPondering(Board board) {
+        if (!ponder)
+            return;
 
-        int size = board.getSizeInPlaces();
+        Position position = new Position(board.getPosition());
+        int size = position.getSize();
+        int playerColor = this.color == Stone.Color.WHITE ? Position.BLACK : Position.WHITE;
 
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (!board.isPlaceOn(i, j, color))
-                    continue;
+        this.cancel();
+
+        int move = engine.predictMove(position, playerColor);
+        if (move < 0)
+            return;
+
+        position.setStone(move / size, move % size, playerColor);
+        this.submit(new Request(position, null, null));
+    }
 
-                int gain = board.calculateTransformationGain(i, j, color);
-                if (gain > maxGain) {
-                    place[0] = i;
-                    place[1] = j;
-                    maxGain = gain;
-                }
+    private void submit(Request current) {
+        this.cancel();
+        request = current;
+        thinking = executor.submit(() -> {
+            synchronized (current) {
+                engine.setStopped(false);
+                engine.setPondering(current.pondering);
             }
+
+            if (current.cancelled)
+                return;
+
+            engine.setListener(current::update);
+            int place[] = this.calculateBestPlace(current.position);
+            engine.setListener(null);
+
+            current.finish(place);
+        });
+    }
+
+    public void cancel() {
+        if (request == null)
+            return;
+
+        request.cancelled = true;
+        thinking.cancel(false);
+        engine.setStopped(true);
+        request = null;
+    }
+
+    public int[] calculateBestPlace(Board board) {
+        return this.calculateBestPlace(board.getPosition());
+    }
+
+    public int[] calculateBestPlace(Position position) {
+        int place[] = new int[] { -1, -1 };
+
+        int size = position.getSize();
+        int color = this.color == Stone.Color.WHITE ? Position.WHITE : Position.BLACK;
+        int move = engine.calculateBestMove(position, color);
+
+        if (move >= 0) {
+            place[0] = move / size;
+            place[1] = move % size;
         }
 
         return place;
     }
 
+    public void close() {
+        this.cancel();
+        executor.shutdown();
+        engine.close();
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
     public Stone.Color getColor() {
         return color;
     }
@@ -0,0 +1,641 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.Search;
+import  ru.game.reversi.SmallBitBoard;
+import  ru.game.reversi.TranspositionTable;
+
+/*
+ * Exact solver for the last empty squares of boards up to 8x8. Scores are
+ * final disc differentials for the side to move, empty squares counted
+ * for the winner.
+ *
+ * Near the root the moves are sorted fastest-first (fewest replies for
+ * the opponent), results go to the transposition table and positions
+ * are cut off early by table lookups of their children and by the count
+ * of the opponent's stable discs. With few empties left the empty squares
+ * are tried directly, odd quadrants first, and the last three empties
+ * have their own routines.
+ */
+public class EndgameSolver {
+
+    private static final int INFINITY = 1 << 10;
+    private static final int FASTEST_FIRST_EMPTIES = 5;
+    private static final int HASH_EMPTIES = 7;
+    private static final int STABILITY_ALPHA = 0;
+    private static final int CHECK_INTERVAL = 4095;
+    private static final int MAX_EMPTIES = 64;
+
+    private static final long NOT_A = 0xfefefefefefefefeL;
+    private static final long NOT_H = 0x7f7f7f7f7f7f7f7fL;
+
+    private TranspositionTable table;
+
+    private long mask;
+    private long corner;
+    private long quadrant[];
+    private long edge[];
+    private long line[][];
+    private int size;
+
+    private long timeLimit;
+    private long nodeLimit;
+    private long deadline;
+    private long nodeStart;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private boolean abort;
+    private volatile boolean stopped;
+    private volatile boolean pondering;
+    private boolean pondered;
+
+    private int moveBit[][];
+    private int moveKey[][];
+    private long moveFlips[][];
+
+    private int bestMove;
+    private int bestScore;
+    private int depth;
+    private boolean complete;
+
+    public EndgameSolver(TranspositionTable table) {
+        this.table = table;
+
+        moveBit = new int[MAX_EMPTIES + 1][MAX_EMPTIES];
+        moveKey = new int[MAX_EMPTIES + 1][MAX_EMPTIES];
+        moveFlips = new long[MAX_EMPTIES + 1][MAX_EMPTIES];
+    }
+
+    public void setTimeLimit(long milliseconds) {
+        timeLimit = milliseconds;
+    }
+
+    public void setNodeLimit(long nodes) {
+        nodeLimit = nodes;
+    }
+
+    public void setStopped(boolean stopped) {
+        this.stopped = stopped;
+    }
+
+    /*
+     * Unlike the search, an unfinished solve has no usable move, so when
+     * pondering ends the limits are counted again from that moment.
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+    }
+
+    private void prepare(SmallBitBoard board) {
+        if (board.getSize() == size)
+            return;
+
+        size = board.getSize();
+        mask = board.getMask();
+        corner = 1L | 1L << (size - 1) | 1L << ((size - 1) * SmallBitBoard.WIDTH)
+               | 1L << ((size - 1) * SmallBitBoard.WIDTH + size - 1);
+        quadrant = new long[4];
+
+        int half = (size + 1) / 2;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++)
+                quadrant[(i < half ? 0 : 2) + (j < half ? 0 : 1)] |= 1L << (i * SmallBitBoard.WIDTH + j);
+        }
+
+        edge = new long[4];
+        line = new long[4][2 * size - 1];
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                long bit = 1L << (i * SmallBitBoard.WIDTH + j);
+                boolean row = i == 0 || i == size - 1;
+                boolean column = j == 0 || j == size - 1;
+
+                edge[0] |= column ? bit : 0;
+                edge[1] |= row ? bit : 0;
+                edge[2] |= row || column ? bit : 0;
+                edge[3] |= row || column ? bit : 0;
+
+                line[0][i] |= bit;
+                line[1][j] |= bit;
+                line[2][i - j + size - 1] |= bit;
+                line[3][i + j] |= bit;
+            }
+        }
+    }
+
+    private long calculateFullLines(long line[], long occupied) {
+        long full = 0;
+
+        for (int k = 0; k < line.length; k++) {
+            if ((occupied & line[k]) == line[k])
+                full |= line[k];
+        }
+
+        return full;
+    }
+
+    private long calculateStableDiscs(long discs, long occupied) {
+        long full0 = this.calculateFullLines(line[0], occupied) | edge[0];
+        long full1 = this.calculateFullLines(line[1], occupied) | edge[1];
+        long full2 = this.calculateFullLines(line[2], occupied) | edge[2];
+        long full3 = this.calculateFullLines(line[3], occupied) | edge[3];
+        long stable = 0;
+
+        while (true) {
+            long horizontal = full0 | ((stable << 1) & NOT_A) | ((stable >>> 1) & NOT_H);
+            long vertical = full1 | (stable << 8) | (stable >>> 8);
+            long diagonal = full2 | ((stable << 9) & NOT_A) | ((stable >>> 9) & NOT_H);
+            long antidiagonal = full3 | ((stable << 7) & NOT_H) | ((stable >>> 7) & NOT_A);
+            long next = stable | (discs & horizontal & vertical & diagonal & antidiagonal);
+
+            if (next == stable)
+                return stable;
+
+            stable = next;
+        }
+    }
+
+    public int solve(SmallBitBoard board) {
+        this.prepare(board);
+
+        deadline = System.nanoTime() + timeLimit * 1000000;
+        nodeStart = 0;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        abort = false;
+        pondered = false;
+        complete = false;
+
+        bestMove = -1;
+        bestScore = 0;
+
+        long player = board.getPlayer();
+        long opponent = board.getOpponent();
+        int empties = Long.bitCount(~(player | opponent) & mask);
+        int count = this.sortMoves(player, opponent, empties, -1);
+
+        depth = empties;
+
+        if (count == 0)
+            return bestMove;
+
+        bestMove = this.toSquare(moveBit[empties][0]);
+
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+
+        for (int k = 0; k < count; k++) {
+            int bit = moveBit[empties][k];
+            long flips = moveFlips[empties][k];
+            long next = player | flips | (1L << bit);
+            int score;
+
+            if (k == 0) {
+                score = -this.solve(opponent ^ flips, next, -beta, -alpha, empties - 1, false);
+            } else {
+                score = -this.solve(opponent ^ flips, next, -alpha - 1, -alpha, empties - 1, false);
+
+                if (!abort && score > alpha)
+                    score = -this.solve(opponent ^ flips, next, -beta, -score, empties - 1, false);
+            }
+
+            if (abort)
+                break;
+
+            if (k == 0 || score > alpha) {
+                alpha = score;
+                bestMove = this.toSquare(bit);
+                bestScore = score;
+            }
+        }
+
+        complete = !abort;
+        return bestMove;
+    }
+
+    private int toSquare(int bit) {
+        return (bit / SmallBitBoard.WIDTH) * size + bit % SmallBitBoard.WIDTH;
+    }
+
+    private int solve(long player, long opponent, int alpha, int beta, int empties, boolean passed) {
+        if ((++nodes & CHECK_INTERVAL) == 0)
+            this.checkLimits();
+
+        if (abort)
+            return 0;
+
+        if (empties < FASTEST_FIRST_EMPTIES)
+            return this.solveShallow(player, opponent, alpha, beta, empties, passed);
+
+        long hash = 0;
+        int hashMove = -1;
+
+        if (empties >= HASH_EMPTIES) {
+            hash = calculateHash(player, opponent);
+            long entry = table.probe(hash);
+
+            tableProbes++;
+            if (entry != 0) {
+                tableHits++;
+                hashMove = TranspositionTable.getMove(entry);
+
+                if (TranspositionTable.getDepth(entry) == empties) {
+                    int score = TranspositionTable.getScore(entry);
+                    int bound = TranspositionTable.getBound(entry);
+
+                    if (bound == TranspositionTable.BOUND_EXACT)
+                        return score;
+                    else if (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        return score;
+                    else if (bound == TranspositionTable.BOUND_UPPER && score <= alpha)
+                        return score;
+                }
+            }
+        }
+
+        if (alpha >= STABILITY_ALPHA) {
+            int bound = size * size - 2 * Long.bitCount(this.calculateStableDiscs(opponent, player | opponent));
+
+            if (bound <= alpha)
+                return bound;
+        }
+
+        int count = this.sortMoves(player, opponent, empties, hashMove);
+
+        if (count == 0) {
+            if (passed)
+                return this.calculateFinalScore(player, opponent, empties);
+
+            return -this.solve(opponent, player, -beta, -alpha, empties, true);
+        }
+
+        if (empties > HASH_EMPTIES) {
+            for (int k = 0; k < count; k++) {
+                long flips = moveFlips[empties][k];
+                long entry = table.probe(calculateHash(opponent ^ flips, player | flips | (1L << moveBit[empties][k])));
+
+                tableProbes++;
+                if (entry != 0)
+                    tableHits++;
+
+                if (entry != 0 && TranspositionTable.getDepth(entry) == empties - 1
+                        && TranspositionTable.getBound(entry) != TranspositionTable.BOUND_LOWER
+                        && -TranspositionTable.getScore(entry) >= beta)
+                    return -TranspositionTable.getScore(entry);
+            }
+        }
+
+        int best = -INFINITY;
+        int bestBit = -1;
+        int bound = TranspositionTable.BOUND_UPPER;
+
+        for (int k = 0; k < count; k++) {
+            int bit = moveBit[empties][k];
+            long flips = moveFlips[empties][k];
+            long next = player | flips | (1L << bit);
+            int score;
+
+            if (k == 0) {
+                score = -this.solve(opponent ^ flips, next, -beta, -alpha, empties - 1, false);
+            } else {
+                score = -this.solve(opponent ^ flips, next, -alpha - 1, -alpha, empties - 1, false);
+
+                if (!abort && score > alpha && score < beta)
+                    score = -this.solve(opponent ^ flips, next, -beta, -score, empties - 1, false);
+            }
+
+            if (abort)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestBit = bit;
+
+                if (score > alpha) {
+                    alpha = score;
+                    bound = TranspositionTable.BOUND_EXACT;
+                }
+
+                if (alpha >= beta) {
+                    bound = TranspositionTable.BOUND_LOWER;
+                    break;
+                }
+            }
+        }
+
+        if (empties >= HASH_EMPTIES)
+            table.store(hash, empties, bound, best, bestBit);
+
+        return best;
+    }
+
+    private int sortMoves(long player, long opponent, int empties, int hashMove) {
+        long moves = SmallBitBoard.calculateMoves(player, opponent, mask);
+        int bit[] = moveBit[empties];
+        int key[] = moveKey[empties];
+        long flips[] = moveFlips[empties];
+        int count = 0;
+
+        while (moves != 0) {
+            int b = Long.numberOfTrailingZeros(moves);
+            long f = SmallBitBoard.calculateFlips(player, opponent, b);
+            long replies = SmallBitBoard.calculateMoves(opponent ^ f, player | f | (1L << b), mask);
+
+            bit[count] = b;
+            flips[count] = f;
+            key[count] = 16 * Long.bitCount(replies) + 8 * Long.bitCount(replies & corner)
+                       + 2 * this.calculatePotentialMobility(player | f | (1L << b), opponent ^ f);
+
+            if (((1L << b) & corner) != 0)
+                key[count] -= 8;
+
+            if (b == hashMove)
+                key[count] = Integer.MIN_VALUE;
+
+            count++;
+            moves &= moves - 1;
+        }
+
+        for (int k = 1; k < count; k++) {
+            int b = bit[k];
+            int v = key[k];
+            long f = flips[k];
+            int l = k - 1;
+
+            while (l >= 0 && key[l] > v) {
+                bit[l + 1] = bit[l];
+                key[l + 1] = key[l];
+                flips[l + 1] = flips[l];
+                l--;
+            }
+
+            bit[l + 1] = b;
+            key[l + 1] = v;
+            flips[l + 1] = f;
+        }
+
+        return count;
+    }
+
+    private int calculatePotentialMobility(long player, long opponent) {
+        long empty = ~(player | opponent) & mask;
+        long around = (player << 8) | (player >>> 8)
+                    | ((player << 1) | (player << 9) | (player >>> 7)) & 0xfefefefefefefefeL
+                    | ((player >>> 1) | (player >>> 9) | (player << 7)) & 0x7f7f7f7f7f7f7f7fL;
+
+        return Long.bitCount(around & empty);
+    }
+
+    private int solveShallow(long player, long opponent, int alpha, int beta, int empties, boolean passed) {
+        long empty = ~(player | opponent) & mask;
+
+        if (empties == 0)
+            return Long.bitCount(player) - Long.bitCount(opponent);
+        else if (empties == 1)
+            return this.solve1(player, opponent, Long.numberOfTrailingZeros(empty));
+        else if (empties == 2)
+            return this.solve2(player, opponent, alpha, beta, empty, passed);
+        else if (empties == 3)
+            return this.solve3(player, opponent, alpha, beta, empty, passed);
+
+        long odd = 0;
+        for (int q = 0; q < 4; q++) {
+            if ((Long.bitCount(empty & quadrant[q]) & 1) != 0)
+                odd |= quadrant[q];
+        }
+
+        int best = -INFINITY;
+
+        for (int pass = 0; pass < 2; pass++) {
+            long set = empty & (pass == 0 ? odd : ~odd);
+
+            while (set != 0) {
+                int b = Long.numberOfTrailingZeros(set);
+                set &= set - 1;
+
+                if ((SmallBitBoard.getNeighbours(b) & opponent) == 0)
+                    continue;
+
+                long flips = SmallBitBoard.calculateFlips(player, opponent, b);
+                if (flips == 0)
+                    continue;
+
+                nodes++;
+                int score = -this.solveShallow(opponent ^ flips, player | flips | (1L << b),
+                                               -beta, -Math.max(alpha, best), empties - 1, false);
+
+                if (score > best) {
+                    best = score;
+
+                    if (best >= beta)
+                        return best;
+                }
+            }
+        }
+
+        if (best == -INFINITY) {
+            if (passed)
+                return this.calculateFinalScore(player, opponent, empties);
+
+            return -this.solveShallow(opponent, player, -beta, -alpha, empties, true);
+        }
+
+        return best;
+    }
+
+    private int solve3(long player, long opponent, int alpha, int beta, long empty, boolean passed) {
+        long odd = 0;
+        for (int q = 0; q < 4; q++) {
+            if ((Long.bitCount(empty & quadrant[q]) & 1) != 0)
+                odd |= quadrant[q];
+        }
+
+        int best = -INFINITY;
+
+        for (int pass = 0; pass < 2; pass++) {
+            long set = empty & (pass == 0 ? odd : ~odd);
+
+            while (set != 0) {
+                int b = Long.numberOfTrailingZeros(set);
+                set &= set - 1;
+
+                if ((SmallBitBoard.getNeighbours(b) & opponent) == 0)
+                    continue;
+
+                long flips = SmallBitBoard.calculateFlips(player, opponent, b);
+                if (flips == 0)
+                    continue;
+
+                nodes++;
+                int score = -this.solve2(opponent ^ flips, player | flips | (1L << b),
+                                         -beta, -Math.max(alpha, best), empty & ~(1L << b), false);
+
+                if (score > best) {
+                    best = score;
+
+                    if (best >= beta)
+                        return best;
+                }
+            }
+        }
+
+        if (best == -INFINITY) {
+            if (passed)
+                return this.calculateFinalScore(player, opponent, 3);
+
+            return -this.solve3(opponent, player, -beta, -alpha, empty, true);
+        }
+
+        return best;
+    }
+
+    private int solve2(long player, long opponent, int alpha, int beta, long empty, boolean passed) {
+        int first = Long.numberOfTrailingZeros(empty);
+        int second = 63 - Long.numberOfLeadingZeros(empty);
+        int best = -INFINITY;
+
+        long flips = (SmallBitBoard.getNeighbours(first) & opponent) != 0
+                   ? SmallBitBoard.calculateFlips(player, opponent, first) : 0;
+        if (flips != 0) {
+            nodes++;
+            best = -this.solve1(opponent ^ flips, player | flips | (1L << first), second);
+
+            if (best >= beta)
+                return best;
+        }
+
+        flips = (SmallBitBoard.getNeighbours(second) & opponent) != 0
+              ? SmallBitBoard.calculateFlips(player, opponent, second) : 0;
+        if (flips != 0) {
+            nodes++;
+            int score = -this.solve1(opponent ^ flips, player | flips | (1L << second), first);
+
+            if (score > best)
+                best = score;
+        }
+
+        if (best == -INFINITY) {
+            if (passed)
+                return this.calculateFinalScore(player, opponent, 2);
+
+            return -this.solve2(opponent, player, -beta, -alpha, empty, true);
+        }
+
+        return best;
+    }
+
+    private int solve1(long player, long opponent, int bit) {
+        int score = Long.bitCount(player) - Long.bitCount(opponent);
+
+        long flips = SmallBitBoard.calculateFlips(player, opponent, bit);
+        if (flips != 0)
+            return score + 2 * Long.bitCount(flips) + 1;
+
+        flips = SmallBitBoard.calculateFlips(opponent, player, bit);
+        if (flips != 0)
+            return score - 2 * Long.bitCount(flips) - 1;
+
+        if (score > 0)
+            return score + 1;
+        else if (score < 0)
+            return score - 1;
+
+        return 0;
+    }
+
+    private int calculateFinalScore(long player, long opponent, int empties) {
+        int score = Long.bitCount(player) - Long.bitCount(opponent);
+
+        if (score > 0)
+            return score + empties;
+        else if (score < 0)
+            return score - empties;
+
+        return 0;
+    }
+
+    private static long calculateHash(long player, long opponent) {
+        long hash = player * 0x9e3779b97f4a7c15L ^ Long.rotateLeft(opponent * 0xc2b2ae3d27d4eb4fL, 31);
+        return hash ^ (hash >>> 29);
+    }
+
+    private void checkLimits() {
+        if (stopped)
+            abort = true;
+
+        if (pondering) {
+            pondered = true;
+            return;
+        }
+
+        if (pondered) {
+            pondered = false;
+            deadline = System.nanoTime() + timeLimit * 1000000;
+            nodeStart = nodes;
+        }
+
+        if (timeLimit > 0 && System.nanoTime() > deadline)
+            abort = true;
+
+        if (nodeLimit > 0 && nodes - nodeStart > nodeLimit)
+            abort = true;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getBestScore() {
+        return bestScore * Search.SCORE_DISC;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getDiscDifference() {
+        return bestScore;
+    }
+
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+}
@@ -0,0 +1,418 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.nio.ShortBuffer;
+import  java.util.concurrent.ExecutionException;
+import  java.util.concurrent.ExecutorService;
+import  java.util.concurrent.Executors;
+import  java.util.concurrent.Future;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.EndgameSolver;
+import  ru.game.reversi.EngineMetrics;
+import  ru.game.reversi.OpeningBook;
+import  ru.game.reversi.PatternEvaluator;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.Search;
+import  ru.game.reversi.SmallBitBoard;
+import  ru.game.reversi.TranspositionTable;
+
+/*
+ * Headless entry point to the search: picks a move for the given color
+ * on a Position, without any Swing state. With more than one thread the
+ * extra searches run the same position on helper threads (Lazy SMP) and
+ * only share results through the transposition table; the move always
+ * comes from the main search.
+ *
+ * Small boards near the end go to the exact solver with half of the move
+ * budget. If it does not finish in time, its move is not trusted and the
+ * search plays the move in the rest of the budget instead.
+ */
+public class Engine {
+
+    public static final int DEFAULT_HASH_SIZE = 16;
+    public static final int DEFAULT_ENDGAME_EMPTIES = 14;
+
+    private Search search;
+    private EndgameSolver solver;
+    private int endgameEmpties;
+    private boolean solved;
+    private boolean fallback;
+    private long timeLimit;
+    private long nodeLimit;
+    private volatile long budgetStart;
+    private volatile boolean stopped;
+    private boolean pondering;
+    private boolean pendingMetrics;
+    private OpeningBook book;
+    private boolean booked;
+    private Search helper[];
+    private Future<?> helperResult[];
+    private ExecutorService executor;
+    private TranspositionTable table;
+    private Search.Listener listener;
+
+    public Engine() {
+        this(DEFAULT_HASH_SIZE, 1);
+    }
+
+    public Engine(int hashSize, int threads) {
+        this(hashSize, threads, null);
+    }
+
+    public Engine(int hashSize, int threads, String weightFile) {
+        ShortBuffer weights = PatternEvaluator.loadWeights(weightFile);
+
+        table = new TranspositionTable(hashSize);
+        search = new Search(new PatternEvaluator(weights), table);
+        solver = new EndgameSolver(table);
+        search.setListener((depth, move, score, nodes) -> this.notifyListener(depth, move, score));
+        endgameEmpties = DEFAULT_ENDGAME_EMPTIES;
+
+        helper = new Search[threads - 1];
+        helperResult = new Future<?>[threads - 1];
+
+        for (int k = 0; k < helper.length; k++) {
+            helper[k] = new Search(new PatternEvaluator(weights), table);
+            helper[k].setDepthStart(1 + (k + 1) % 2);
+        }
+
+        if (helper.length > 0) {
+            executor = Executors.newFixedThreadPool(helper.length, runnable -> {
+                Thread thread = new Thread(runnable, "reversi-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void close() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    public void setTimeLimit(long milliseconds) {
+        timeLimit = milliseconds;
+        search.setTimeLimit(milliseconds);
+        solver.setTimeLimit((milliseconds + 1) / 2);
+    }
+
+    public void setNodeLimit(long nodes) {
+        nodeLimit = nodes;
+        search.setNodeLimit(nodes);
+        solver.setNodeLimit((nodes + 1) / 2);
+    }
+
+    public void setEndgameEmpties(int empties) {
+        endgameEmpties = empties;
+    }
+
+    public void setListener(Search.Listener listener) {
+        this.listener = listener;
+    }
+
+    /*
+     * Stops the current search from another thread; the engine then returns
+     * its best move so far. A stopped engine stays stopped until it is
+     * restarted with setStopped(false).
+     */
+    public void setStopped(boolean stopped) {
+        this.stopped = stopped;
+        if (stopped)
+            this.clearPendingMetrics();
+
+        search.setStopped(stopped);
+        solver.setStopped(stopped);
+
+        for (int k = 0; k < helper.length && stopped; k++)
+            helper[k].setStopped(true);
+    }
+
+    /*
+     * While pondering, the time and node limits are not checked and the
+     * search only ends on stop or at the depth limit. Switching pondering
+     * off applies the limits counted from the start of the search, so a
+     * search that already ran long enough stops at once. An endgame solve
+     * instead gets its budget again from that moment, and the search after
+     * an unfinished solve gets the rest of it.
+     */
+    public void setPondering(boolean pondering) {
+        synchronized (this) {
+            this.pondering = pondering;
+
+            if (!pondering) {
+                budgetStart = System.nanoTime();
+
+                if (pendingMetrics) {
+                    pendingMetrics = false;
+                    this.recordMetrics(0);
+                }
+            }
+        }
+
+        search.setPondering(pondering);
+        solver.setPondering(pondering);
+    }
+
+    /*
+     * Guesses the reply for color from the transposition table, which still
+     * holds the principal variation of the last search; falls back to the
+     * first legal move.
+     */
+    public int predictMove(Position position, int color) {
+        BitBoard board = BitBoard.create(position, color);
+        int move = TranspositionTable.getMove(table.probe(board.getHash()));
+
+        if (move >= 0 && board.isMove(move))
+            return move;
+
+        int moves[] = new int[position.getSize() * position.getSize()];
+
+        return board.generateMoves(moves, 0) > 0 ? moves[0] : -1;
+    }
+
+    private void notifyListener(int depth, int move, int score) {
+        if (listener != null)
+            listener.update(depth, move, score, this.getNodes());
+    }
+
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public void setDepthLimit(int depth) {
+        search.setDepthLimit(depth);
+
+        for (int k = 0; k < helper.length; k++)
+            helper[k].setDepthLimit(depth);
+    }
+
+    public void clearHash() {
+        table.clear();
+    }
+
+    /*
+     * With metrics on, only moves that are played are recorded, timed from
+     * the point where the budget applies: a stopped search is dropped, and a
+     * ponder search is recorded when it is taken over (with no wait if it
+     * already finished) and dropped when it is stopped instead.
+     */
+    public int calculateBestMove(Position position, int color) {
+        if (!EngineMetrics.ENABLED)
+            return this.chooseMove(position, color);
+
+        this.clearPendingMetrics();
+        int move = this.chooseMove(position, color);
+        long end = System.nanoTime();
+
+        synchronized (this) {
+            if (stopped)
+                return move;
+
+            if (pondering)
+                pendingMetrics = true;
+            else
+                this.recordMetrics(end - budgetStart);
+        }
+
+        return move;
+    }
+
+    private synchronized void clearPendingMetrics() {
+        pendingMetrics = false;
+    }
+
+    private void recordMetrics(long nanoseconds) {
+        EngineMetrics.recordMove(Math.max(nanoseconds, 0), this.getNodes(), this.getTableProbes(),
+                                 this.getTableHits(), this.getCutoffs(), this.getDepth());
+    }
+
+    private int chooseMove(Position position, int color) {
+        budgetStart = System.nanoTime();
+
+        int move = book != null ? book.probe(position, color) : -1;
+
+        booked = move >= 0;
+        solved = false;
+        fallback = false;
+        if (booked)
+            return move;
+
+        BitBoard board = BitBoard.create(position, color);
+
+        table.nextAge();
+
+        if (board instanceof SmallBitBoard && board.getEmptyCount() <= endgameEmpties) {
+            move = solver.solve((SmallBitBoard)board);
+            solved = solver.isComplete();
+
+            if (solved) {
+                this.notifyListener(solver.getDepth(), move, solver.getBestScore());
+                return move;
+            }
+
+            fallback = true;
+            long elapsed = (System.nanoTime() - budgetStart) / 1000000;
+
+            search.setTimeLimit(timeLimit > 0 ? Math.max(timeLimit - elapsed, 1) : 0);
+            search.setNodeLimit(nodeLimit > 0 ? Math.max(nodeLimit / 2, 1) : 0);
+            move = this.searchMove(board);
+            search.setTimeLimit(timeLimit);
+            search.setNodeLimit(nodeLimit);
+
+            return move;
+        }
+
+        return this.searchMove(board);
+    }
+
+    private int searchMove(BitBoard board) {
+        for (int k = 0; k < helper.length; k++) {
+            Search worker = helper[k];
+            BitBoard copy = board.copy();
+
+            worker.setStopped(false);
+            helperResult[k] = executor.submit(() -> worker.search(copy));
+        }
+
+        int move = search.search(board);
+
+        for (int k = 0; k < helper.length; k++)
+            helper[k].setStopped(true);
+
+        for (int k = 0; k < helper.length; k++) {
+            try {
+                helperResult[k].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        return move;
+    }
+
+    public int getThreadCount() {
+        return helper.length + 1;
+    }
+
+    public int getScore() {
+        if (booked)
+            return book.getScore();
+
+        return solved ? solver.getBestScore() : search.getBestScore();
+    }
+
+    public int getDepth() {
+        if (booked)
+            return 0;
+
+        return solved ? solver.getDepth() : search.getDepth();
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public boolean isBookMove() {
+        return booked;
+    }
+
+    public long getNodes() {
+        if (booked)
+            return 0;
+
+        if (solved)
+            return solver.getNodes();
+
+        long nodes = search.getNodes() + (fallback ? solver.getNodes() : 0);
+
+        for (int k = 0; k < helper.length; k++)
+            nodes += helper[k].getNodes();
+
+        return nodes;
+    }
+
+    public long getTableProbes() {
+        if (booked)
+            return 0;
+
+        if (solved)
+            return solver.getTableProbes();
+
+        long probes = search.getTableProbes() + (fallback ? solver.getTableProbes() : 0);
+
+        for (int k = 0; k < helper.length; k++)
+            probes += helper[k].getTableProbes();
+
+        return probes;
+    }
+
+    public long getTableHits() {
+        if (booked)
+            return 0;
+
+        if (solved)
+            return solver.getTableHits();
+
+        long hits = search.getTableHits() + (fallback ? solver.getTableHits() : 0);
+
+        for (int k = 0; k < helper.length; k++)
+            hits += helper[k].getTableHits();
+
+        return hits;
+    }
+
+    public long getCutoffs() {
+        if (booked || solved)
+            return 0;
+
+        long cutoffs = search.getOrdering().getCutoffs();
+
+        for (int k = 0; k < helper.length; k++)
+            cutoffs += helper[k].getOrdering().getCutoffs();
+
+        return cutoffs;
+    }
+
+    public double getFirstMoveCutoffRate() {
+        if (booked || solved)
+            return 0;
+
+        long cutoffs = search.getOrdering().getCutoffs();
+        long firstMoveCutoffs = search.getOrdering().getFirstMoveCutoffs();
+
+        for (int k = 0; k < helper.length; k++) {
+            cutoffs += helper[k].getOrdering().getCutoffs();
+            firstMoveCutoffs += helper[k].getOrdering().getFirstMoveCutoffs();
+        }
+
+        if (cutoffs == 0)
+            return 0;
+
+        return (double)firstMoveCutoffs / cutoffs;
+    }
+
+}
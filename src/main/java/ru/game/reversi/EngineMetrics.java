@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.lang.management.ManagementFactory;
+import  java.util.concurrent.Executors;
+import  java.util.concurrent.ScheduledExecutorService;
+import  java.util.concurrent.TimeUnit;
+import  java.util.concurrent.atomic.LongAccumulator;
+import  java.util.concurrent.atomic.LongAdder;
+import  javax.management.JMException;
+import  javax.management.ObjectName;
+import  ru.game.reversi.EngineMetricsMBean;
+import  ru.game.reversi.LatencyHistogram;
+
+/*
+ * Process-wide engine statistics, switched on with -Dreversi.metrics=true.
+ * Every engine adds its totals once per move, so the search itself only
+ * keeps plain per-thread counters; the totals are LongAdders, striped per
+ * thread. When enabled, the metrics are registered as the MBean
+ * ru.game.reversi:type=EngineMetrics and logged every
+ * -Dreversi.metrics.interval seconds (10 by default, 0 to turn it off).
+ */
+public class EngineMetrics implements EngineMetricsMBean {
+
+    public static final boolean ENABLED = Boolean.getBoolean("reversi.metrics");
+    public static final String OBJECT_NAME = "ru.game.reversi:type=EngineMetrics";
+
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+    static {
+        if (ENABLED)
+            INSTANCE.start(Integer.getInteger("reversi.metrics.interval", 10));
+    }
+
+    private LongAdder moves;
+    private LongAdder nodes;
+    private LongAdder time;
+    private LongAdder tableProbes;
+    private LongAdder tableHits;
+    private LongAdder cutoffs;
+    private LongAdder depth;
+    private LongAccumulator maxDepth;
+    private LatencyHistogram moveTime;
+    private long loggedMoves;
+
+    private EngineMetrics() {
+        moves = new LongAdder();
+        nodes = new LongAdder();
+        time = new LongAdder();
+        tableProbes = new LongAdder();
+        tableHits = new LongAdder();
+        cutoffs = new LongAdder();
+        depth = new LongAdder();
+        maxDepth = new LongAccumulator(Math::max, 0);
+        moveTime = new LatencyHistogram();
+    }
+
+    public static EngineMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private void start(int interval) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.out.println("Cannot register " + OBJECT_NAME + ": " + e.getMessage());
+        }
+
+        if (interval <= 0)
+            return;
+
+        ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reversi-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        logger.scheduleAtFixedRate(this::log, interval, interval, TimeUnit.SECONDS);
+    }
+
+    public static void recordMove(long nanoseconds, long nodes, long tableProbes, long tableHits,
+                                  long cutoffs, int depth) {
+        INSTANCE.moves.increment();
+        INSTANCE.nodes.add(nodes);
+        INSTANCE.time.add(nanoseconds);
+        INSTANCE.tableProbes.add(tableProbes);
+        INSTANCE.tableHits.add(tableHits);
+        INSTANCE.cutoffs.add(cutoffs);
+        INSTANCE.depth.add(depth);
+        INSTANCE.maxDepth.accumulate(depth);
+        INSTANCE.moveTime.record(nanoseconds);
+    }
+
+    private void log() {
+        long count = this.getMoves();
+        if (count == loggedMoves)
+            return;
+
+        loggedMoves = count;
+        System.out.printf("engine: %d moves, %.0f knodes/s, table hits %.1f%%, %d cutoffs, depth %.1f (max %d), "
+                          + "move ms p50 %.1f p90 %.1f p99 %.1f max %.1f%n", count, this.getNodesPerSecond() / 1000,
+                          100 * this.getTableHitRate(), this.getCutoffs(), this.getAverageDepth(), this.getMaxDepth(),
+                          this.getMoveTimeMedian(), this.getMoveTime90(), this.getMoveTime99(), this.getMoveTimeMax());
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        long nanoseconds = time.sum();
+
+        return nanoseconds == 0 ? 0 : nodes.sum() * 1e9 / nanoseconds;
+    }
+
+    @Override
+    public long getTableProbes() {
+        return tableProbes.sum();
+    }
+
+    @Override
+    public long getTableHits() {
+        return tableHits.sum();
+    }
+
+    @Override
+    public double getTableHitRate() {
+        long probes = tableProbes.sum();
+
+        return probes == 0 ? 0 : (double)tableHits.sum() / probes;
+    }
+
+    @Override
+    public long getCutoffs() {
+        return cutoffs.sum();
+    }
+
+    @Override
+    public double getAverageDepth() {
+        long count = moves.sum();
+
+        return count == 0 ? 0 : (double)depth.sum() / count;
+    }
+
+    @Override
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    @Override
+    public double getMoveTimeMedian() {
+        return moveTime.getPercentile(0.5) / 1000.0;
+    }
+
+    @Override
+    public double getMoveTime90() {
+        return moveTime.getPercentile(0.9) / 1000.0;
+    }
+
+    @Override
+    public double getMoveTime99() {
+        return moveTime.getPercentile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getMoveTimeMax() {
+        return moveTime.getMax() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        moves.reset();
+        nodes.reset();
+        time.reset();
+        tableProbes.reset();
+        tableHits.reset();
+        cutoffs.reset();
+        depth.reset();
+        maxDepth.reset();
+        moveTime.reset();
+        loggedMoves = 0;
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.util.Arrays;
+
+/*
+ * Paint statistics of the last FRAMES frames of the board, kept in ring
+ * buffers that are allocated once: start time and duration of every
+ * paint, the area it covered and the repaint requests that came in since
+ * the frame before. Used from the event thread only.
+ */
+public class FrameStats {
+
+    public static final int FRAMES = 1024;
+
+    private long start[];
+    private long duration[];
+    private long area[];
+    private int requests[];
+    private long sorted[];
+    private long frames;
+    private int pendingRequests;
+    private long totalRequests;
+
+    public FrameStats() {
+        start = new long[FRAMES];
+        duration = new long[FRAMES];
+        area = new long[FRAMES];
+        requests = new int[FRAMES];
+        sorted = new long[FRAMES];
+    }
+
+    public void addRepaintRequest() {
+        pendingRequests++;
+        totalRequests++;
+    }
+
+    public void addFrame(long startTime, long endTime, long paintedArea) {
+        int slot = (int)(frames % FRAMES);
+
+        start[slot] = startTime;
+        duration[slot] = endTime - startTime;
+        area[slot] = paintedArea;
+        requests[slot] = pendingRequests;
+        pendingRequests = 0;
+        frames++;
+    }
+
+    private int getStoredFrames() {
+        return (int)Math.min(frames, FRAMES);
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    public long getRequestCount() {
+        return totalRequests;
+    }
+
+    /* frames painted during the last second */
+    public int getFramesPerSecond() {
+        long since = System.nanoTime() - 1000000000L;
+        int count = 0;
+
+        for (int k = 1; k <= this.getStoredFrames(); k++) {
+            if (start[(int)((frames - k) % FRAMES)] < since)
+                break;
+
+            count++;
+        }
+
+        return count;
+    }
+
+    public long getLastDuration() {
+        return frames == 0 ? 0 : duration[(int)((frames - 1) % FRAMES)];
+    }
+
+    public long getLastArea() {
+        return frames == 0 ? 0 : area[(int)((frames - 1) % FRAMES)];
+    }
+
+    public double getAverageArea() {
+        int count = this.getStoredFrames();
+        long total = 0;
+
+        for (int k = 0; k < count; k++)
+            total += area[k];
+
+        return count == 0 ? 0 : (double)total / count;
+    }
+
+    public double getAverageRequests() {
+        int count = this.getStoredFrames();
+        long total = 0;
+
+        for (int k = 0; k < count; k++)
+            total += requests[k];
+
+        return count == 0 ? 0 : (double)total / count;
+    }
+
+    /*
+     * Paint duration in nanoseconds that the given fraction of the stored
+     * frames does not exceed.
+     */
+    public long getPercentile(double fraction) {
+        int count = this.getStoredFrames();
+        if (count == 0)
+            return 0;
+
+        System.arraycopy(duration, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+
+        return sorted[Math.max(0, Math.min(count - 1, (int)Math.ceil(fraction * count) - 1))];
+    }
+
+    public String getSummary() {
+        return String.format("%d frames, paint ms p50 %.2f p90 %.2f p99 %.2f max %.2f, "
+                             + "%.1f requests and %.0f px per frame", frames,
+                             this.getPercentile(0.5) / 1e6, this.getPercentile(0.9) / 1e6,
+                             this.getPercentile(0.99) / 1e6, this.getPercentile(1) / 1e6,
+                             this.getAverageRequests(), this.getAverageArea());
+    }
+
+}
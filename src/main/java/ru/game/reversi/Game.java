@@ -25,12 +25,17 @@ package ru.game.reversi;
 
 import  java.awt.*;
 import  java.awt.event.*;
+import  java.io.IOException;
 import  javax.swing.*;
 import  javax.swing.border.*;
 import  javax.swing.event.*;
 import  ru.game.reversi.Board;
 import  ru.game.reversi.Stone;
 import  ru.game.reversi.ComputerPlayer;
+import  ru.game.reversi.FrameStats;
+import  ru.game.reversi.GameRecord;
+import  ru.game.reversi.GameRecordWriter;
+import  ru.game.reversi.Position;
 
 public class Game implements ChangeListener, ActionListener, MouseListener,
                              MouseMotionListener, KeyListener {
@@ -48,6 +53,14 @@ public class Game implements ChangeListener, ActionListener, MouseListener,
 
     private ComputerPlayer computerPlayer;
     private Timer computerTurnTimer;
+    private int computerTurn;
+    private int computerPlace[];
+
+    private GameRecord record;
+    private boolean recorded;
+
+    private FrameStats frameStats;
+    private boolean hudVisible;
 
     private Stone.Color playerColor;
     private Stone.Color turn;
@@ -62,9 +75,15 @@ public class Game implements ChangeListener, ActionListener, MouseListener,
         window.setFocusable(true);
         window.setFocusTraversalKeysEnabled(false);
         window.addKeyListener(this);
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeGame();
+            }
+        });
 
         labelInfo = new JLabel("Turn: Player", JLabel.CENTER);
-        labelInfo.setPreferredSize(new Dimension(128, 16));
+        labelInfo.setPreferredSize(new Dimension(224, 16));
 
         BoundedRangeModel boundedRange = new DefaultBoundedRangeModel(6, 2, 6, 32);
 
@@ -110,37 +129,50 @@ public class Game implements ChangeListener, ActionListener, MouseListener,
 
         window.add(panelMenu, BorderLayout.NORTH);
 
+        frameStats = new FrameStats();
+
         board = new Board(Stone.Color.WHITE, 6);
+        board.setFrameStats(frameStats);
         board.addMouseListener(this);
         board.addMouseMotionListener(this);
 
         window.add(board, BorderLayout.CENTER);
 
         computerPlayer = new ComputerPlayer(Stone.Color.BLACK);
-        computerTurnTimer = new Timer(500, this);
+        computerTurnTimer = new Timer(Integer.getInteger("reversi.delay", 0), this);
         computerTurnTimer.setRepeats(false);
 
         playerColor = Stone.Color.WHITE;
         turn = playerColor;
+        record = new GameRecord(6, Position.WHITE);
 
         window.setVisible(true);
     }
 
     private void restart() {
+        this.saveRecord();
+        this.cancelComputerTurn();
+        board.getAnimationClock().stop();
+        board.setHudVisible(false);
         window.remove(board);
         window.repaint();
 
         board = new Board(playerColor, sliderBoardSize.getValue());
+        board.setFrameStats(frameStats);
+        board.setHudVisible(hudVisible);
         board.addMouseListener(this);
         board.addMouseMotionListener(this);
         window.add(board, BorderLayout.CENTER);
 
         labelInfo.setText("Turn: Player");
         turn = Stone.Color.WHITE;
+        record.reset(sliderBoardSize.getValue(), Position.WHITE);
+        recorded = false;
 
+        computerPlayer.close();
         if (playerColor == Stone.Color.BLACK) {
             computerPlayer = new ComputerPlayer(Stone.Color.WHITE);
-            computerTurnTimer.start();
+            this.startComputerTurn();
         } else
             computerPlayer = new ComputerPlayer(Stone.Color.BLACK);
 
@@ -148,16 +180,192 @@ public class Game implements ChangeListener, ActionListener, MouseListener,
         window.setVisible(true);
     }
 
+    /*
+     * The computer thinks in the background; its progress and result come
+     * back to the event thread tagged with the turn number, so anything
+     * that arrives after a restart is ignored. The move is shown no sooner
+     * than the computerTurnTimer delay after the turn started.
+     */
+    private void startComputerTurn() {
+        int turnNumber = ++computerTurn;
+        long start = System.currentTimeMillis();
+        int size = board.getSizeInPlaces();
+
+        labelInfo.setText("Turn: Computer");
+
+        computerPlayer.startThinking(board,
+            (depth, move, score, nodes) -> SwingUtilities.invokeLater(() -> {
+                if (turnNumber == computerTurn && move >= 0)
+                    labelInfo.setText(String.format("Computer: depth %d, %dk nodes, %d:%d",
+                                                    depth, nodes / 1000, move / size + 1, move % size + 1));
+            }),
+            place -> SwingUtilities.invokeLater(() -> {
+                if (turnNumber != computerTurn)
+                    return;
+
+                long delay = computerTurnTimer.getDelay() - (System.currentTimeMillis() - start);
+
+                computerPlace = place;
+                if (delay > 0) {
+                    computerTurnTimer.setInitialDelay((int)delay);
+                    computerTurnTimer.start();
+                } else
+                    this.finishComputerTurn();
+            }));
+    }
+
+    private void cancelComputerTurn() {
+        computerTurn++;
+        computerPlace = null;
+        computerTurnTimer.stop();
+        computerPlayer.cancel();
+    }
+
+    private void finishComputerTurn() {
+        Stone.Color computerColor = computerPlayer.getColor();
+        int place[] = computerPlace;
+
+        computerPlace = null;
+        if (turn != computerColor || place == null)
+            return;
+
+        boolean isStoneOnPlace = board.isStoneOn(place[0], place[1]); 
+        boolean isPlace = board.isPlaceOn(place[0], place[1], computerColor);
+
+        if (isPlace && !isStoneOnPlace) {
+            board.setStone(place[0], place[1], computerPlayer.getColor());
+            record.addMove(place[0] * board.getSizeInPlaces() + place[1]);
+            recorded = false;
+        } else
+            System.out.println("Invailed place");
+
+        if (!checkGameEnd())
+            this.startTurn(playerColor);
+    }
+
+    /*
+     * Gives the turn to color, or, when color has no place, records its
+     * pass and gives the turn back to the other side; called only while
+     * the game is not over, so one of them can always move.
+     */
+    private void startTurn(Stone.Color color) {
+        if (board.calculateAvailablePlaceCount(color) == 0) {
+            record.addPass();
+            color = color == Stone.Color.WHITE ? Stone.Color.BLACK : Stone.Color.WHITE;
+        }
+
+        turn = color;
+        if (turn == computerPlayer.getColor())
+            this.startComputerTurn();
+        else {
+            labelInfo.setText("Turn: Player");
+            computerPlayer.startPondering(board);
+        }
+    }
+
+    /* passes are not on the board's undo stack, so they go with the move before them */
+    private void removeRecordedPasses() {
+        while (record.getMoveCount() > 0 && record.getMove(record.getMoveCount() - 1) == GameRecord.PASS)
+            record.removeLastMove();
+    }
+
+    /*
+     * Ctrl+Z takes back moves up to and including the player's last one,
+     * Ctrl+Y replays them up to the computer's reply; a running computer
+     * turn is cancelled first.
+     *
+     * Undo can reopen a game that was already saved. The first new move
+     * after it starts a different game, which is saved again when it ends;
+     * the ending saved before stays in the file as the game that was played.
+     * Undo and redo alone do not save the same moves twice.
+     */
+    private void undoMove() {
+        this.cancelComputerTurn();
+
+        while (board.canUndo()) {
+            Stone.Color color = board.getLastColor();
+
+            this.removeRecordedPasses();
+            board.undo();
+            record.removeLastMove();
+
+            if (color == playerColor)
+                break;
+        }
+
+        this.removeRecordedPasses();
+        this.continueGame();
+    }
+
+    private void redoMove() {
+        this.cancelComputerTurn();
+
+        while (board.canRedo()) {
+            Stone.Color color = board.getRedoColor();
+
+            this.removeRecordedPasses();
+            if (color == board.getLastColor())
+                record.addPass();
+
+            record.addMove(board.redo());
+
+            if (color != playerColor && board.getRedoColor() != color)
+                break;
+        }
+
+        this.continueGame();
+    }
+
+    private void continueGame() {
+        Stone.Color last = board.getLastColor();
+        Stone.Color next = last == Stone.Color.WHITE ? Stone.Color.BLACK : Stone.Color.WHITE;
+
+        if (checkGameEnd())
+            return;
+
+        this.startTurn(next);
+    }
+
+    /*
+     * Called on the event thread when the window closes or ESC is pressed;
+     * the paint statistics are only touched on that thread.
+     */
+    private void closeGame() {
+        this.saveRecord();
+
+        if (Boolean.getBoolean("reversi.frames"))
+            System.out.println(frameStats.getSummary());
+    }
+
+    /*
+     * Appends the game to the -Dreversi.record file once, when it ends or
+     * is left unfinished; recorded stays set while the moves are the saved
+     * ones or a part of them taken back.
+     */
+    private void saveRecord() {
+        String file = System.getProperty("reversi.record");
+        if (file == null || recorded || record.getMoveCount() == 0)
+            return;
+
+        recorded = true;
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            writer.write(record);
+        } catch (IOException e) {
+            System.out.println("Cannot record the game: " + e.getMessage());
+        }
+    }
+
     private boolean checkGameEnd() {
         int blackPlaces = board.calculateAvailablePlaceCount(Stone.Color.BLACK);
-        int whitePlaces = board.calculateAvailablePlaceCount(Stone.Color.BLACK);
+        int whitePlaces = board.calculateAvailablePlaceCount(Stone.Color.WHITE);
 
-        if (blackPlaces < 1 || whitePlaces < 1) {
+        if (blackPlaces < 1 && whitePlaces < 1) {
             if (board.calculateWinningColor() == computerPlayer.getColor())
                 labelInfo.setText("Computer win!");
             else
                 labelInfo.setText("Player win!");
 
+            this.saveRecord();
             return true;
         } else
             return false;
@@ -176,27 +384,7 @@ public class Game implements ChangeListener, ActionListener, MouseListener,
     @Override
     public void actionPerformed(ActionEvent e) {
         if (e.getSource() == computerTurnTimer) {
-            Stone.Color computerColor = computerPlayer.getColor();
-
-            if (turn != computerColor)
-                return;
-
-
-            int place[] = computerPlayer.calculateBestPlace(board);
-
-            boolean isStoneOnPlace = board.isStoneOn(place[0], place[1]); 
-            boolean isPlace = board.isPlaceOn(place[0], place[1], computerColor);
-
-            if (isPlace && !isStoneOnPlace) {
-                board.setStone(place[0], place[1], computerPlayer.getColor());
-                board.repaint();
-            } else
-                System.out.println("Invailed place");
-
-            if (!checkGameEnd()) {
-                labelInfo.setText("Turn: Player");
-                turn = playerColor;
-            }
+            this.finishComputerTurn();
         } else {
             if (e.getSource() == radioButtonBlack)
                 playerColor = Stone.Color.BLACK;
@@ -246,23 +434,31 @@ public class Game implements ChangeListener, ActionListener, MouseListener,
 
         if (!board.isStoneOn(i, j) && board.isPlaceOn(i, j, playerColor)) {
             board.setStone(i, j, playerColor);
-            board.repaint();
-
-            labelInfo.setText("Turn: Computer");
-            turn = computerPlayer.getColor();
-
-            computerTurnTimer.start();
-        }
+            record.addMove(i * size + j);
+            recorded = false;
 
-        checkGameEnd();
+            if (!checkGameEnd())
+                this.startTurn(computerPlayer.getColor());
+        } else
+            checkGameEnd();
     }
 
     @Override
     public void keyReleased(KeyEvent e) {
-        if (e.getKeyCode() == KeyEvent.VK_ESCAPE)
+        if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+            this.closeGame();
             System.exit(0);
+        }
+        else if (e.getKeyCode() == KeyEvent.VK_Z && e.isControlDown())
+            this.undoMove();
+        else if (e.getKeyCode() == KeyEvent.VK_Y && e.isControlDown())
+            this.redoMove();
         else if (e.getKeyCode() == KeyEvent.VK_R)
             this.restart();
+        else if (e.getKeyCode() == KeyEvent.VK_H) {
+            hudVisible = !hudVisible;
+            board.setHudVisible(hudVisible);
+        }
     }
 
     @Override
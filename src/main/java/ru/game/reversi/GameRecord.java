@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.nio.ByteBuffer;
+import  java.util.Arrays;
+import  ru.game.reversi.Position;
+
+/*
+ * Moves of one game from the initial position: the board size, the color
+ * that moved first and the squares i * size + j, PASS for a pass.
+ *
+ * File layout, big-endian: magic and version, then the games one after
+ * another: board size and first color as bytes, the move count as an
+ * unsigned short and the moves, one byte each on boards up to 16x16 and
+ * two bytes above. A pass is stored as the top-left centre square, which
+ * holds a stone from the start and so is never a move.
+ */
+public class GameRecord {
+
+    public static final int MAGIC = 0x52564752;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int GAME_HEADER_SIZE = 4;
+    public static final int MAX_MOVES = 0xffff;
+    public static final int PASS = -1;
+
+    private int size;
+    private int firstColor;
+    private int moves[];
+    private int count;
+
+    public GameRecord() {
+        this(8, Position.WHITE);
+    }
+
+    public GameRecord(int size, int firstColor) {
+        moves = new int[64];
+        this.reset(size, firstColor);
+    }
+
+    public GameRecord(GameRecord record) {
+        size = record.size;
+        firstColor = record.firstColor;
+        moves = record.moves.clone();
+        count = record.count;
+    }
+
+    public void reset(int size, int firstColor) {
+        this.size = size;
+        this.firstColor = firstColor;
+        count = 0;
+    }
+
+    public void addMove(int square) {
+        if (count == MAX_MOVES)
+            throw new IllegalStateException("too many moves in a game record");
+
+        if (count == moves.length)
+            moves = Arrays.copyOf(moves, 2 * count);
+
+        moves[count++] = square;
+    }
+
+    public void addPass() {
+        this.addMove(PASS);
+    }
+
+    public void removeLastMove() {
+        if (count > 0)
+            count--;
+    }
+
+    public static int getMoveBytes(int size) {
+        return size <= 16 ? 1 : 2;
+    }
+
+    private static int getPassCode(int size) {
+        return (size / 2 - 1) * size + size / 2 - 1;
+    }
+
+    public int getEncodedLength() {
+        return GAME_HEADER_SIZE + count * getMoveBytes(size);
+    }
+
+    void encode(ByteBuffer buffer) {
+        int pass = getPassCode(size);
+
+        buffer.put((byte)size);
+        buffer.put((byte)firstColor);
+        buffer.putShort((short)count);
+
+        for (int k = 0; k < count; k++) {
+            int code = moves[k] == PASS ? pass : moves[k];
+
+            if (size <= 16)
+                buffer.put((byte)code);
+            else
+                buffer.putShort((short)code);
+        }
+    }
+
+    /* reads the moves of a game whose header is already parsed */
+    void decode(ByteBuffer buffer, int size, int firstColor, int count) {
+        int pass = getPassCode(size);
+
+        this.reset(size, firstColor);
+        if (moves.length < count)
+            moves = new int[count];
+
+        for (int k = 0; k < count; k++) {
+            int code = size <= 16 ? buffer.get() & 0xff : buffer.getShort() & 0xffff;
+
+            moves[k] = code == pass ? PASS : code;
+        }
+
+        this.count = count;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getFirstColor() {
+        return firstColor;
+    }
+
+    public int getMoveCount() {
+        return count;
+    }
+
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+}
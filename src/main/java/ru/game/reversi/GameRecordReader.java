@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.Closeable;
+import  java.io.IOException;
+import  java.nio.ByteBuffer;
+import  java.nio.channels.FileChannel;
+import  java.nio.file.Path;
+import  java.nio.file.Paths;
+import  java.nio.file.StandardOpenOption;
+import  java.util.Map;
+import  java.util.TreeMap;
+import  ru.game.reversi.GameRecord;
+import  ru.game.reversi.Position;
+
+/*
+ * Streams the games of a game record file through one direct buffer, so
+ * files of any length are read without holding them in memory. A game cut
+ * off at the end of the file (e.g. by a crash while writing) ends the scan.
+ *
+ * usage: records [file]
+ */
+public class GameRecordReader implements Closeable {
+
+    public static final int BUFFER_SIZE = 1 << 18;
+
+    private Path path;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long games;
+
+    public GameRecordReader(String file) throws IOException {
+        path = Paths.get(file);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+
+        try {
+            checkHeader(channel, path);
+            channel.position(GameRecord.HEADER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static void checkHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameRecord.HEADER_SIZE);
+
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0);
+
+        if (header.hasRemaining() || header.getInt(0) != GameRecord.MAGIC
+                || header.getInt(4) != GameRecord.VERSION)
+            throw new IllegalArgumentException(path + ": not a game record file");
+    }
+
+    public static void run(String args[]) {
+        String file = args.length > 1 ? args[1] : "games.rec";
+        Map<Integer, long[]> sizes = new TreeMap<>();
+        GameRecord record = new GameRecord();
+        long start = System.nanoTime();
+        long bytes = 0;
+
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            while (reader.next(record)) {
+                long total[] = sizes.computeIfAbsent(record.getSize(), size -> new long[3]);
+
+                total[0]++;
+                total[1] += record.getMoveCount();
+                for (int k = 0; k < record.getMoveCount(); k++) {
+                    if (record.getMove(k) == GameRecord.PASS)
+                        total[2]++;
+                }
+
+                bytes += record.getEncodedLength();
+            }
+        } catch (IOException e) {
+            System.out.println(file + ": " + e.getMessage());
+            return;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%6s %12s %12s %10s%n", "size", "games", "moves/game", "passes");
+        for (Map.Entry<Integer, long[]> entry : sizes.entrySet()) {
+            long total[] = entry.getValue();
+
+            System.out.printf("%6d %12d %12.1f %10d%n", entry.getKey(), total[0], (double)total[1] / total[0], total[2]);
+        }
+
+        System.out.printf("%.1f MB in %.2f s, %.0f games/s%n", bytes / 1e6, seconds,
+                          sizes.values().stream().mapToLong(total -> total[0]).sum() / seconds);
+    }
+
+    /*
+     * Reads the next game into record; returns false at the end of the file.
+     */
+    public boolean next(GameRecord record) throws IOException {
+        if (!this.fill(GameRecord.GAME_HEADER_SIZE))
+            return false;
+
+        int size = buffer.get() & 0xff;
+        int firstColor = buffer.get();
+        int count = buffer.getShort() & 0xffff;
+
+        if (size < 4 || (firstColor != Position.BLACK && firstColor != Position.WHITE))
+            throw new IllegalArgumentException(path + ": broken game " + games);
+
+        if (!this.fill(count * GameRecord.getMoveBytes(size)))
+            return false;
+
+        record.decode(buffer, size, firstColor, count);
+        games++;
+
+        return true;
+    }
+
+    private boolean fill(int length) throws IOException {
+        while (buffer.remaining() < length) {
+            buffer.compact();
+            int read = channel.read(buffer);
+            buffer.flip();
+
+            if (read < 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    public long getGameCount() {
+        return games;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.Closeable;
+import  java.io.IOException;
+import  java.nio.ByteBuffer;
+import  java.nio.channels.FileChannel;
+import  java.nio.file.Path;
+import  java.nio.file.Paths;
+import  java.nio.file.StandardOpenOption;
+import  ru.game.reversi.GameRecord;
+import  ru.game.reversi.GameRecordReader;
+
+/*
+ * Appends games to a game record file through one direct buffer, which is
+ * written out whenever the next game does not fit and on close. A new file
+ * gets the header first; an existing one must already be a game record
+ * file. Writers may be shared between threads.
+ */
+public class GameRecordWriter implements Closeable {
+
+    public static final int BUFFER_SIZE = 1 << 18;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+
+    public GameRecordWriter(String file) throws IOException {
+        Path path = Paths.get(file);
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        try {
+            if (channel.size() == 0) {
+                buffer.putInt(GameRecord.MAGIC);
+                buffer.putInt(GameRecord.VERSION);
+            } else
+                GameRecordReader.checkHeader(channel, path);
+
+            channel.position(channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Appends the given game to the file.
+     */
+    public synchronized void write(GameRecord record) throws IOException {
+        if (buffer.remaining() < record.getEncodedLength())
+            this.flush();
+
+        record.encode(buffer);
+    }
+
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Evaluator;
+import  ru.game.reversi.Position;
+
+/*
+ * Size independent evaluation: mobility, corners, the X and C squares
+ * next to empty corners and, near the end, the disc count. Scores are
+ * returned for the side to move in Search.SCORE_DISC units.
+ */
+public class HeuristicEvaluator implements Evaluator {
+
+    private static final int MOBILITY = 70;
+    private static final int CORNER = 800;
+    private static final int X_SQUARE = -300;
+    private static final int C_SQUARE = -100;
+    private static final int DISC = 20;
+
+    private int size;
+    private int corner[];
+    private int square[][];
+
+    private void createSquares(int size) {
+        int last = size - 1;
+
+        this.size = size;
+        corner = new int[] { 0, last, last * size, last * size + last };
+        square = new int[][] {
+            { 1 * size + 1, 0 * size + 1, 1 * size + 0 },
+            { 1 * size + last - 1, 0 * size + last - 1, 1 * size + last },
+            { (last - 1) * size + 1, last * size + 1, (last - 1) * size + 0 },
+            { (last - 1) * size + last - 1, last * size + last - 1, (last - 1) * size + last }
+        };
+    }
+
+    @Override
+    public int evaluate(BitBoard board) {
+        if (board.getSize() != size)
+            this.createSquares(board.getSize());
+
+        int color = board.getColor();
+        int score = MOBILITY * (board.calculateMobility() - board.calculateOpponentMobility());
+
+        for (int k = 0; k < 4; k++) {
+            int stone = board.getStone(corner[k]);
+
+            if (stone != Position.EMPTY) {
+                score += stone == color ? CORNER : -CORNER;
+                continue;
+            }
+
+            for (int l = 0; l < 3; l++) {
+                stone = board.getStone(square[k][l]);
+
+                if (stone != Position.EMPTY) {
+                    int weight = l == 0 ? X_SQUARE : C_SQUARE;
+                    score += stone == color ? weight : -weight;
+                }
+            }
+        }
+
+        int empty = board.getEmptyCount();
+        if (4 * empty < size * size) {
+            int discs = board.getStoneCount(color) - board.getStoneCount(Position.opponent(color));
+            score += DISC * discs;
+        }
+
+        return score;
+    }
+
+}
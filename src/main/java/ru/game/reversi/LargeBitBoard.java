@@ -0,0 +1,342 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.Zobrist;
+
+/*
+ * Boards from 10x10 up to 32x32, one long word per row with bit j for
+ * column j. Horizontal rays are filled inside a word, vertical and
+ * diagonal rays are swept row by row, so move generation costs O(size)
+ * word operations per direction.
+ */
+public class LargeBitBoard extends BitBoard {
+
+    private static final int DI[] = { 0, 0, -1, 1, -1, 1, -1, 1 };
+    private static final int DJ[] = { -1, 1, 0, 0, -1, 1, 1, -1 };
+
+    private long player[];
+    private long opponent[];
+    private long mask;
+
+    private long moves[];
+    private long journal[];
+    private int journalSquare[];
+
+    public LargeBitBoard(Position position, int color) {
+        super(position.getSize(), color);
+
+        player = new long[size];
+        opponent = new long[size];
+        mask = size == 64 ? -1L : (1L << size) - 1;
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (position.getColor(i, j) == color)
+                    player[i] |= 1L << j;
+                else if (position.getColor(i, j) == Position.opponent(color))
+                    opponent[i] |= 1L << j;
+            }
+        }
+
+        moves = new long[size];
+        journalSquare = new int[calculateJournalCapacity(position)];
+        journal = new long[journalSquare.length * size];
+        hashJournal = new long[journalSquare.length];
+        hash = Zobrist.calculateHash(this);
+    }
+
+    private LargeBitBoard(LargeBitBoard board) {
+        super(board.size, board.color);
+
+        player = board.player.clone();
+        opponent = board.opponent.clone();
+        mask = board.mask;
+        ply = board.ply;
+        moves = new long[size];
+        journal = board.journal.clone();
+        journalSquare = board.journalSquare.clone();
+        hash = board.hash;
+        hashJournal = board.hashJournal.clone();
+    }
+
+    public static void calculateMoves(long player[], long opponent[], long mask, long moves[]) {
+        int size = player.length;
+
+        for (int r = 0; r < size; r++) {
+            long empty = ~(player[r] | opponent[r]) & mask;
+            moves[r] = (calculateMovesLeft(player[r], opponent[r]) | calculateMovesRight(player[r], opponent[r])) & empty;
+        }
+
+        long down = 0;
+        long downLeft = 0;
+        long downRight = 0;
+
+        for (int r = 1; r < size; r++) {
+            long empty = ~(player[r] | opponent[r]) & mask;
+
+            moves[r] |= (down | (downLeft >>> 1) | (downRight << 1)) & empty;
+
+            down = (player[r - 1] | down) & opponent[r];
+            downLeft = ((player[r - 1] | downLeft) >>> 1) & opponent[r];
+            downRight = ((player[r - 1] | downRight) << 1) & opponent[r];
+        }
+
+        long up = 0;
+        long upLeft = 0;
+        long upRight = 0;
+
+        for (int r = size - 2; r >= 0; r--) {
+            long empty = ~(player[r] | opponent[r]) & mask;
+
+            moves[r] |= (up | (upLeft >>> 1) | (upRight << 1)) & empty;
+
+            up = (player[r + 1] | up) & opponent[r];
+            upLeft = ((player[r + 1] | upLeft) >>> 1) & opponent[r];
+            upRight = ((player[r + 1] | upRight) << 1) & opponent[r];
+        }
+    }
+
+    private static long calculateMovesLeft(long player, long propagator) {
+        long generator = (player << 1) & propagator;
+
+        generator |= propagator & (generator << 1);
+        propagator &= propagator << 1;
+        generator |= propagator & (generator << 2);
+        propagator &= propagator << 2;
+        generator |= propagator & (generator << 4);
+        propagator &= propagator << 4;
+        generator |= propagator & (generator << 8);
+        propagator &= propagator << 8;
+        generator |= propagator & (generator << 16);
+
+        return generator << 1;
+    }
+
+    private static long calculateMovesRight(long player, long propagator) {
+        long generator = (player >>> 1) & propagator;
+
+        generator |= propagator & (generator >>> 1);
+        propagator &= propagator >>> 1;
+        generator |= propagator & (generator >>> 2);
+        propagator &= propagator >>> 2;
+        generator |= propagator & (generator >>> 4);
+        propagator &= propagator >>> 4;
+        generator |= propagator & (generator >>> 8);
+        propagator &= propagator >>> 8;
+        generator |= propagator & (generator >>> 16);
+
+        return generator >>> 1;
+    }
+
+    public static int calculateFlips(long player[], long opponent[], int i, int j, long flips[], int offset) {
+        int size = player.length;
+        int count = 0;
+
+        for (int r = 0; r < size; r++)
+            flips[offset + r] = 0;
+
+        for (int d = 0; d < 8; d++) {
+            int length = calculateRayLength(player, opponent, i, j, d);
+
+            for (int k = i + DI[d], l = j + DJ[d]; length > 0; k += DI[d], l += DJ[d], length--) {
+                flips[offset + k] |= 1L << l;
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static int calculateRayLength(long player[], long opponent[], int i, int j, int d) {
+        int size = player.length;
+        int k = i + DI[d];
+        int l = j + DJ[d];
+        int length = 0;
+
+        while (k >= 0 && l >= 0 && k < size && l < size && (opponent[k] & (1L << l)) != 0) {
+            k += DI[d];
+            l += DJ[d];
+            length++;
+        }
+
+        if (k < 0 || l < 0 || k >= size || l >= size || (player[k] & (1L << l)) == 0)
+            return 0;
+
+        return length;
+    }
+
+    @Override
+    public int generateMoves(int moves[], int offset) {
+        calculateMoves(player, opponent, mask, this.moves);
+        int count = 0;
+
+        for (int r = 0; r < size; r++) {
+            long set = this.moves[r];
+
+            while (set != 0) {
+                moves[offset + count++] = r * size + Long.numberOfTrailingZeros(set);
+                set &= set - 1;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public int calculateMobility() {
+        calculateMoves(player, opponent, mask, moves);
+        return this.countMoves();
+    }
+
+    @Override
+    public int calculateOpponentMobility() {
+        calculateMoves(opponent, player, mask, moves);
+        return this.countMoves();
+    }
+
+    private int countMoves() {
+        int count = 0;
+
+        for (int r = 0; r < size; r++)
+            count += Long.bitCount(moves[r]);
+
+        return count;
+    }
+
+    @Override
+    public boolean isMove(int square) {
+        return this.getStone(square) == Position.EMPTY && this.calculateFlipCount(square) > 0;
+    }
+
+    @Override
+    public int calculateFlipCount(int square) {
+        int count = 0;
+
+        for (int d = 0; d < 8; d++)
+            count += calculateRayLength(player, opponent, square / size, square % size, d);
+
+        return count;
+    }
+
+    @Override
+    public int play(int square) {
+        int i = square / size;
+        int j = square % size;
+        int offset = ply * size;
+        int count = calculateFlips(player, opponent, i, j, journal, offset);
+
+        for (int r = 0; r < size; r++) {
+            player[r] |= journal[offset + r];
+            opponent[r] ^= journal[offset + r];
+        }
+
+        player[i] |= 1L << j;
+        hashJournal[ply] = hash;
+        journalSquare[ply++] = square;
+
+        hash ^= Zobrist.getKey(color, square) ^ Zobrist.getSideKey();
+        for (int r = 0; r < size; r++) {
+            for (long set = journal[offset + r]; set != 0; set &= set - 1)
+                hash ^= Zobrist.getFlipKey(r * size + Long.numberOfTrailingZeros(set));
+        }
+
+        this.swap();
+
+        return count;
+    }
+
+    @Override
+    public void pass() {
+        hashJournal[ply] = hash;
+        journalSquare[ply++] = -1;
+        hash ^= Zobrist.getSideKey();
+        this.swap();
+    }
+
+    @Override
+    public void undo() {
+        int square = journalSquare[--ply];
+        hash = hashJournal[ply];
+        this.swap();
+
+        if (square < 0)
+            return;
+
+        int offset = ply * size;
+
+        for (int r = 0; r < size; r++) {
+            player[r] ^= journal[offset + r];
+            opponent[r] ^= journal[offset + r];
+        }
+
+        player[square / size] ^= 1L << (square % size);
+    }
+
+    private void swap() {
+        long next[] = opponent;
+        opponent = player;
+        player = next;
+        color = Position.opponent(color);
+    }
+
+    @Override
+    public int getStone(int square) {
+        long bit = 1L << (square % size);
+
+        if ((player[square / size] & bit) != 0)
+            return color;
+        else if ((opponent[square / size] & bit) != 0)
+            return Position.opponent(color);
+
+        return Position.EMPTY;
+    }
+
+    @Override
+    public int getStoneCount(int color) {
+        long set[] = color == this.color ? player : opponent;
+        int count = 0;
+
+        for (int r = 0; r < size; r++)
+            count += Long.bitCount(set[r]);
+
+        return count;
+    }
+
+    @Override
+    public BitBoard copy() {
+        return new LargeBitBoard(this);
+    }
+
+    public long[] getPlayer() {
+        return player;
+    }
+
+    public long[] getOpponent() {
+        return opponent;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.util.concurrent.atomic.AtomicLong;
+import  java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Log-linear histogram of durations in the spirit of HdrHistogram: values
+ * in microseconds, 16 linear sub-buckets per power of two, so every value
+ * is kept within about 6%. Recording is two atomic updates and never
+ * allocates; threads may record concurrently.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private AtomicLongArray count;
+    private AtomicLong max;
+
+    public LatencyHistogram() {
+        count = new AtomicLongArray(BUCKETS);
+        max = new AtomicLong();
+    }
+
+    private static int calculateIndex(long value) {
+        if (value < SUB_BUCKETS)
+            return (int)value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int)(value >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+    }
+
+    /* smallest value that falls into the bucket */
+    private static long calculateValue(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+
+        return (long)(index % SUB_BUCKETS + SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    public void record(long nanoseconds) {
+        long value = Math.max(0, nanoseconds / 1000);
+
+        count.incrementAndGet(calculateIndex(value));
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        long total = 0;
+
+        for (int k = 0; k < BUCKETS; k++)
+            total += count.get(k);
+
+        return total;
+    }
+
+    /*
+     * Returns the duration in microseconds that the given fraction of the
+     * recorded values does not exceed, as the upper end of its bucket.
+     */
+    public long getPercentile(double fraction) {
+        long total = this.getCount();
+        long rank = (long)Math.ceil(fraction * total);
+
+        for (int k = 0; k < BUCKETS && total > 0; k++) {
+            rank -= count.get(k);
+
+            if (rank <= 0)
+                return Math.min(calculateValue(k + 1) - 1, max.get());
+        }
+
+        return max.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public void reset() {
+        for (int k = 0; k < BUCKETS; k++)
+            count.set(k, 0);
+
+        max.set(0);
+    }
+
+}
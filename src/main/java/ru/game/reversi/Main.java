@@ -23,12 +23,37 @@
 
 package ru.game.reversi;
 
+import  ru.game.reversi.Analyzer;
+import  ru.game.reversi.Benchmark;
+import  ru.game.reversi.BookBuilder;
 import  ru.game.reversi.Game;
+import  ru.game.reversi.GameRecordReader;
+import  ru.game.reversi.Perft;
+import  ru.game.reversi.SpeedupBenchmark;
+import  ru.game.reversi.Tournament;
+import  ru.game.reversi.WeightTrainer;
 
 public class Main {
 
     public static void main(String[] args) {
-        new Game();
+        if (args.length > 0 && args[0].equals("speedup"))
+            SpeedupBenchmark.run(args);
+        else if (args.length > 0 && args[0].equals("bench"))
+            Benchmark.run(args);
+        else if (args.length > 0 && args[0].equals("book"))
+            BookBuilder.run(args);
+        else if (args.length > 0 && args[0].equals("perft"))
+            Perft.run(args);
+        else if (args.length > 0 && args[0].equals("selfplay"))
+            Tournament.run(args);
+        else if (args.length > 0 && args[0].equals("weights"))
+            WeightTrainer.run(args);
+        else if (args.length > 0 && args[0].equals("records"))
+            GameRecordReader.run(args);
+        else if (args.length > 0 && args[0].equals("analyze"))
+            Analyzer.run(args);
+        else
+            new Game();
     }
 
 }
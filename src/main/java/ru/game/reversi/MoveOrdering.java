@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.BitBoard;
+
+/*
+ * Orders moves for the alpha-beta search: the transposition table move
+ * first, then the two killer moves of the ply, then the rest by corner,
+ * history and, far enough from the horizon, by the mobility left to the
+ * opponent. Moves are sorted in place with scores kept in per-ply
+ * buffers, so ordering does not allocate during the search.
+ */
+public class MoveOrdering {
+
+    private static final int SCORE_HASH = 1 << 30;
+    private static final int SCORE_KILLER = 1 << 29;
+    private static final int SCORE_CORNER = 1 << 20;
+    private static final int MOBILITY_WEIGHT = 1 << 16;
+    private static final int MOBILITY_DEPTH = 3;
+    private static final int HISTORY_LIMIT = 1 << 18;
+
+    private int size;
+    private int killer[][];
+    private int history[];
+    private int score[][];
+
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    public MoveOrdering(int maxPly) {
+        killer = new int[maxPly][2];
+        score = new int[maxPly][0];
+        history = new int[0];
+    }
+
+    public void prepare(int size) {
+        if (this.size != size) {
+            this.size = size;
+            history = new int[size * size];
+
+            for (int k = 0; k < score.length; k++)
+                score[k] = new int[size * size];
+        }
+
+        for (int k = 0; k < killer.length; k++) {
+            killer[k][0] = -1;
+            killer[k][1] = -1;
+        }
+
+        for (int k = 0; k < history.length; k++)
+            history[k] >>= 1;
+
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    public void sortMoves(BitBoard board, int moves[], int count, int ply, int depth, int hashMove) {
+        int buffer[] = score[ply];
+
+        for (int k = 0; k < count; k++) {
+            int move = moves[k];
+
+            if (move == hashMove)
+                buffer[k] = SCORE_HASH;
+            else if (move == killer[ply][0])
+                buffer[k] = SCORE_KILLER + 1;
+            else if (move == killer[ply][1])
+                buffer[k] = SCORE_KILLER;
+            else {
+                buffer[k] = history[move];
+
+                if (this.isCorner(move))
+                    buffer[k] += SCORE_CORNER;
+
+                if (depth >= MOBILITY_DEPTH) {
+                    board.play(move);
+                    buffer[k] -= board.calculateMobility() * MOBILITY_WEIGHT;
+                    board.undo();
+                }
+            }
+        }
+
+        for (int k = 1; k < count; k++) {
+            int move = moves[k];
+            int value = buffer[k];
+            int l = k;
+
+            for (; l > 0 && buffer[l - 1] < value; l--) {
+                moves[l] = moves[l - 1];
+                buffer[l] = buffer[l - 1];
+            }
+
+            moves[l] = move;
+            buffer[l] = value;
+        }
+    }
+
+    public void updateCutoff(int move, int index, int depth, int ply) {
+        cutoffs++;
+
+        if (index == 0)
+            firstMoveCutoffs++;
+
+        if (killer[ply][0] != move) {
+            killer[ply][1] = killer[ply][0];
+            killer[ply][0] = move;
+        }
+
+        history[move] += depth * depth;
+
+        if (history[move] > HISTORY_LIMIT) {
+            for (int k = 0; k < history.length; k++)
+                history[k] >>= 1;
+        }
+    }
+
+    private boolean isCorner(int move) {
+        int last = size - 1;
+
+        return move == 0 || move == last || move == last * size || move == last * size + last;
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    public double getFirstMoveCutoffRate() {
+        if (cutoffs == 0)
+            return 0;
+
+        return (double)firstMoveCutoffs / cutoffs;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.IOException;
+import  java.io.UncheckedIOException;
+import  java.nio.ByteBuffer;
+import  java.nio.MappedByteBuffer;
+import  java.nio.channels.FileChannel;
+import  java.nio.file.Path;
+import  java.nio.file.Paths;
+import  java.nio.file.StandardOpenOption;
+import  java.util.Map;
+import  java.util.concurrent.ConcurrentHashMap;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.Zobrist;
+
+/*
+ * Opening book read straight from a memory-mapped file. Positions are
+ * normalized over the 8 symmetries of the square board: the key is the
+ * smallest hash of the transformed positions and moves are stored on the
+ * transformed board. Keys are mixed with the board size, so one file can
+ * hold books for several sizes.
+ *
+ * File layout, big-endian: magic, version, entry count and a reserved int,
+ * then the entries sorted by key, one per book move: the key as a long,
+ * then the board size, the move, its score and search depth as shorts.
+ */
+public class OpeningBook {
+
+    public static final int ENTRY_SIZE = 16;
+    public static final int HEADER_SIZE = 16;
+    public static final int MAGIC = 0x5256424b;
+    public static final int VERSION = 1;
+
+    private static final long SIZE_KEY = 0x9e3779b97f4a7c15L;
+
+    private static final Map<Path, ByteBuffer> BOOKS = new ConcurrentHashMap<>();
+
+    private ByteBuffer buffer;
+    private int count;
+    private long hash[];
+    private int score;
+
+    public OpeningBook(String file) {
+        buffer = BOOKS.computeIfAbsent(Paths.get(file).toAbsolutePath().normalize(), path -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                if (map.limit() < HEADER_SIZE || map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+                        || map.limit() != HEADER_SIZE + (long)map.getInt(8) * ENTRY_SIZE)
+                    throw new IllegalArgumentException(path + ": not an opening book");
+
+                return map;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        count = buffer.getInt(8);
+        hash = new long[8];
+    }
+
+    public static int transform(int square, int size, int symmetry) {
+        int i = square / size;
+        int j = square % size;
+
+        if ((symmetry & 4) != 0) {
+            int swap = i;
+            i = j;
+            j = swap;
+        }
+        if ((symmetry & 1) != 0)
+            i = size - 1 - i;
+        if ((symmetry & 2) != 0)
+            j = size - 1 - j;
+
+        return i * size + j;
+    }
+
+    public static int inverse(int square, int size, int symmetry) {
+        int i = square / size;
+        int j = square % size;
+
+        if ((symmetry & 1) != 0)
+            i = size - 1 - i;
+        if ((symmetry & 2) != 0)
+            j = size - 1 - j;
+        if ((symmetry & 4) != 0)
+            return j * size + i;
+
+        return i * size + j;
+    }
+
+    /*
+     * Returns the symmetry that takes the position to its canonical form,
+     * the canonical key is left in hash[0].
+     */
+    public static int calculateSymmetry(Position position, int color, long hash[]) {
+        int size = position.getSize();
+        long initial = color == Position.WHITE ? Zobrist.getSideKey() : 0;
+
+        initial ^= size * SIZE_KEY;
+        for (int t = 0; t < 8; t++)
+            hash[t] = initial;
+
+        for (int square = 0; square < size * size; square++) {
+            int stone = position.getColor(square / size, square % size);
+
+            if (stone == Position.EMPTY)
+                continue;
+
+            for (int t = 0; t < 8; t++)
+                hash[t] ^= Zobrist.getKey(stone, transform(square, size, t));
+        }
+
+        int symmetry = 0;
+        for (int t = 1; t < 8; t++) {
+            if (Long.compareUnsigned(hash[t], hash[symmetry]) < 0)
+                symmetry = t;
+        }
+
+        hash[0] = hash[symmetry];
+        return symmetry;
+    }
+
+    /*
+     * Best book move for the position or -1, its score is kept for
+     * getScore().
+     */
+    public int probe(Position position, int color) {
+        int size = position.getSize();
+        int symmetry = calculateSymmetry(position, color, hash);
+        long key = hash[0];
+        int move = -1;
+
+        for (int k = this.findFirst(key); k < count && this.getKey(k) == key; k++) {
+            int offset = HEADER_SIZE + k * ENTRY_SIZE;
+
+            if (buffer.getShort(offset + 8) != size)
+                continue;
+
+            int value = buffer.getShort(offset + 12);
+            if (move < 0 || value > score) {
+                move = inverse(buffer.getShort(offset + 10), size, symmetry);
+                score = value;
+            }
+        }
+
+        return move;
+    }
+
+    private int findFirst(long key) {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (Long.compareUnsigned(this.getKey(middle), key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    private long getKey(int k) {
+        return buffer.getLong(HEADER_SIZE + k * ENTRY_SIZE);
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getEntryCount() {
+        return count;
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.IOException;
+import  java.io.UncheckedIOException;
+import  java.nio.ByteBuffer;
+import  java.nio.MappedByteBuffer;
+import  java.nio.ShortBuffer;
+import  java.nio.channels.FileChannel;
+import  java.nio.file.Files;
+import  java.nio.file.Path;
+import  java.nio.file.Paths;
+import  java.nio.file.StandardCopyOption;
+import  java.nio.file.StandardOpenOption;
+import  java.util.Map;
+import  java.util.concurrent.ConcurrentHashMap;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Evaluator;
+import  ru.game.reversi.HeuristicEvaluator;
+import  ru.game.reversi.Patterns;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.SmallBitBoard;
+
+/*
+ * Table-driven evaluation of 8x8 boards: the sum of the pattern weights
+ * of the current game phase plus a mobility term. Weights are scored for
+ * black and read straight from a memory-mapped file, so loading does no
+ * parsing and all engines of the JVM share one read-only copy. Without a
+ * file the weights are built in memory from the same terms that
+ * HeuristicEvaluator uses; other board sizes are passed to it directly.
+ *
+ * File layout, big-endian: magic, version, phase count and table size as
+ * ints, then phase count * table size short weights.
+ */
+public class PatternEvaluator implements Evaluator {
+
+    public static final int PHASES = 12;
+
+    private static final int MAGIC = 0x52565057;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private static final int MOBILITY = 70;
+    private static final int CORNER = 800;
+    private static final int X_SQUARE = -300;
+    private static final int C_SQUARE = -100;
+    private static final int DISC = 20;
+    private static final int DISC_PHASE = 9;
+
+    private static final Map<Path, ShortBuffer> WEIGHTS = new ConcurrentHashMap<>();
+    private static ShortBuffer defaultWeights;
+
+    private ShortBuffer weights;
+    private int offset[];
+    private HeuristicEvaluator fallback;
+
+    public PatternEvaluator(ShortBuffer weights) {
+        this.weights = weights;
+
+        offset = new int[Patterns.INSTANCE_COUNT];
+        for (int n = 0; n < offset.length; n++)
+            offset[n] = Patterns.getOffset(n);
+
+        fallback = new HeuristicEvaluator();
+    }
+
+    public static int calculatePhase(int empty) {
+        return Math.max(0, Math.min(PHASES - 1, (60 - empty) / 5));
+    }
+
+    @Override
+    public int evaluate(BitBoard board) {
+        if (board.getSize() != Patterns.SIZE)
+            return fallback.evaluate(board);
+
+        int pattern[] = ((SmallBitBoard)board).enablePatterns();
+        int base = calculatePhase(board.getEmptyCount()) * Patterns.TABLE_SIZE;
+        int score = 0;
+
+        for (int n = 0; n < pattern.length; n++)
+            score += weights.get(base + offset[n] + pattern[n]);
+
+        if (board.getColor() == Position.WHITE)
+            score = -score;
+
+        return score + MOBILITY * (board.calculateMobility() - board.calculateOpponentMobility());
+    }
+
+    public static int getMobilityWeight() {
+        return MOBILITY;
+    }
+
+    /*
+     * Maps the weight file, or returns the built-in weights when there is
+     * no file. A file is mapped once per JVM.
+     */
+    public static ShortBuffer loadWeights(String file) {
+        if (file == null || !Files.isRegularFile(Paths.get(file)))
+            return getDefaultWeights();
+
+        return WEIGHTS.computeIfAbsent(Paths.get(file).toAbsolutePath().normalize(), path -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+                if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                    throw new IllegalArgumentException(path + ": not a weight file");
+
+                if (buffer.getInt(8) != PHASES || buffer.getInt(12) != Patterns.TABLE_SIZE
+                        || buffer.limit() != HEADER_SIZE + 2L * PHASES * Patterns.TABLE_SIZE)
+                    throw new IllegalArgumentException(path + ": weight tables do not match the patterns");
+
+                buffer.position(HEADER_SIZE);
+                return buffer.slice().asShortBuffer().asReadOnlyBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public static void saveWeights(ShortBuffer weights, String file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 2 * PHASES * Patterns.TABLE_SIZE);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(PHASES).putInt(Patterns.TABLE_SIZE);
+        for (int k = 0; k < PHASES * Patterns.TABLE_SIZE; k++)
+            buffer.putShort(weights.get(k));
+        buffer.flip();
+
+        Path path = Paths.get(file).toAbsolutePath();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static synchronized ShortBuffer getDefaultWeights() {
+        if (defaultWeights == null) {
+            short table[] = new short[PHASES * Patterns.TABLE_SIZE];
+
+            for (int phase = 0; phase < PHASES; phase++) {
+                for (int type = 0; type < Patterns.TYPE_COUNT; type++) {
+                    int length = Patterns.getTypeLength(type);
+                    int base = phase * Patterns.TABLE_SIZE + Patterns.getTypeOffset(type);
+
+                    for (int index = 0, count = calculateIndexCount(length); index < count; index++)
+                        table[base + index] = (short)calculateDefaultWeight(phase, type, index, length);
+                }
+            }
+
+            defaultWeights = ShortBuffer.wrap(table).asReadOnlyBuffer();
+        }
+
+        return defaultWeights;
+    }
+
+    private static int calculateIndexCount(int length) {
+        int count = 1;
+
+        for (int k = 0; k < length; k++)
+            count *= 3;
+
+        return count;
+    }
+
+    private static int calculateDefaultWeight(int phase, int type, int index, int length) {
+        int sign[] = new int[length];
+
+        for (int k = 0; k < length; k++, index /= 3)
+            sign[k] = index % 3 == 1 ? 1 : index % 3 == 2 ? -1 : 0;
+
+        int weight = 0;
+
+        if (type == Patterns.CORNER_3X3) {
+            if (sign[0] != 0)
+                weight += sign[0] * CORNER;
+            else
+                weight += sign[4] * X_SQUARE + (sign[1] + sign[3]) * C_SQUARE;
+        }
+
+        if (phase >= DISC_PHASE && (type == Patterns.EDGE_X || type == Patterns.LINE_2
+                || type == Patterns.LINE_3 || type == Patterns.LINE_4)) {
+            for (int k = 0; k < Patterns.SIZE; k++)
+                weight += sign[k] * DISC / 2;
+        }
+
+        return weight;
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.util.Arrays;
+import  ru.game.reversi.Position;
+
+/*
+ * Pattern geometry of the 8x8 board: edges with the two X squares, 3x3 and
+ * 2x5 corner regions, the inner lines and the diagonals. Every pattern is
+ * placed on the board in all its distinct symmetric positions; a placed
+ * pattern reads its squares as base 3 digits (0 empty, 1 black, 2 white)
+ * and all placements of one pattern share a weight table.
+ */
+public class Patterns {
+
+    public static final int SIZE = 8;
+
+    public static final int EDGE_X = 0;
+    public static final int CORNER_3X3 = 1;
+    public static final int CORNER_2X5 = 2;
+    public static final int LINE_2 = 3;
+    public static final int LINE_3 = 4;
+    public static final int LINE_4 = 5;
+    public static final int DIAGONAL_8 = 6;
+    public static final int DIAGONAL_7 = 7;
+    public static final int DIAGONAL_6 = 8;
+    public static final int DIAGONAL_5 = 9;
+    public static final int DIAGONAL_4 = 10;
+    public static final int TYPE_COUNT = 11;
+
+    private static final int SHAPE[][][] = {
+        { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 0, 3 }, { 0, 4 }, { 0, 5 }, { 0, 6 }, { 0, 7 }, { 1, 1 }, { 1, 6 } },
+        { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 0 }, { 1, 1 }, { 1, 2 }, { 2, 0 }, { 2, 1 }, { 2, 2 } },
+        { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 0, 3 }, { 0, 4 }, { 1, 0 }, { 1, 1 }, { 1, 2 }, { 1, 3 }, { 1, 4 } },
+        { { 1, 0 }, { 1, 1 }, { 1, 2 }, { 1, 3 }, { 1, 4 }, { 1, 5 }, { 1, 6 }, { 1, 7 } },
+        { { 2, 0 }, { 2, 1 }, { 2, 2 }, { 2, 3 }, { 2, 4 }, { 2, 5 }, { 2, 6 }, { 2, 7 } },
+        { { 3, 0 }, { 3, 1 }, { 3, 2 }, { 3, 3 }, { 3, 4 }, { 3, 5 }, { 3, 6 }, { 3, 7 } },
+        { { 0, 0 }, { 1, 1 }, { 2, 2 }, { 3, 3 }, { 4, 4 }, { 5, 5 }, { 6, 6 }, { 7, 7 } },
+        { { 0, 1 }, { 1, 2 }, { 2, 3 }, { 3, 4 }, { 4, 5 }, { 5, 6 }, { 6, 7 } },
+        { { 0, 2 }, { 1, 3 }, { 2, 4 }, { 3, 5 }, { 4, 6 }, { 5, 7 } },
+        { { 0, 3 }, { 1, 4 }, { 2, 5 }, { 3, 6 }, { 4, 7 } },
+        { { 0, 4 }, { 1, 5 }, { 2, 6 }, { 3, 7 } }
+    };
+
+    public static final int INSTANCE_COUNT;
+    public static final int TABLE_SIZE;
+
+    private static final int TYPE_OFFSET[] = new int[TYPE_COUNT];
+    private static final int INSTANCE_TYPE[];
+    private static final int INSTANCE_SQUARES[][];
+    private static final int BIT_INSTANCE[][] = new int[SIZE * SIZE][];
+    private static final int BIT_POWER[][] = new int[SIZE * SIZE][];
+
+    static {
+        int type[] = new int[8 * TYPE_COUNT];
+        int squares[][] = new int[8 * TYPE_COUNT][];
+        int count = 0;
+        int offset = 0;
+
+        for (int t = 0; t < TYPE_COUNT; t++) {
+            TYPE_OFFSET[t] = offset;
+            offset += calculatePower(SHAPE[t].length);
+
+            for (int symmetry = 0; symmetry < 8; symmetry++) {
+                int placed[] = new int[SHAPE[t].length];
+                long set = 0;
+
+                for (int k = 0; k < placed.length; k++) {
+                    int i = SHAPE[t][k][0];
+                    int j = SHAPE[t][k][1];
+
+                    if ((symmetry & 4) != 0) {
+                        int swap = i;
+                        i = j;
+                        j = swap;
+                    }
+                    if ((symmetry & 1) != 0)
+                        i = SIZE - 1 - i;
+                    if ((symmetry & 2) != 0)
+                        j = SIZE - 1 - j;
+
+                    placed[k] = i * SIZE + j;
+                    set |= 1L << placed[k];
+                }
+
+                boolean duplicate = false;
+                for (int l = 0; l < count && !duplicate; l++)
+                    duplicate = type[l] == t && calculateSet(squares[l]) == set;
+
+                if (!duplicate) {
+                    type[count] = t;
+                    squares[count] = placed;
+                    count++;
+                }
+            }
+        }
+
+        INSTANCE_COUNT = count;
+        TABLE_SIZE = offset;
+        INSTANCE_TYPE = Arrays.copyOf(type, count);
+        INSTANCE_SQUARES = Arrays.copyOf(squares, count);
+
+        for (int bit = 0; bit < SIZE * SIZE; bit++) {
+            int instance[] = new int[count];
+            int power[] = new int[count];
+            int length = 0;
+
+            for (int n = 0; n < count; n++) {
+                for (int k = 0; k < INSTANCE_SQUARES[n].length; k++) {
+                    if (INSTANCE_SQUARES[n][k] == bit) {
+                        instance[length] = n;
+                        power[length] = calculatePower(k);
+                        length++;
+                    }
+                }
+            }
+
+            BIT_INSTANCE[bit] = Arrays.copyOf(instance, length);
+            BIT_POWER[bit] = Arrays.copyOf(power, length);
+        }
+    }
+
+    private static int calculatePower(int exponent) {
+        int power = 1;
+
+        for (int k = 0; k < exponent; k++)
+            power *= 3;
+
+        return power;
+    }
+
+    private static long calculateSet(int squares[]) {
+        long set = 0;
+
+        for (int k = 0; k < squares.length; k++)
+            set |= 1L << squares[k];
+
+        return set;
+    }
+
+    public static void calculateIndices(long black, long white, int index[]) {
+        for (int n = 0; n < INSTANCE_COUNT; n++) {
+            int squares[] = INSTANCE_SQUARES[n];
+            int value = 0;
+
+            for (int k = squares.length - 1; k >= 0; k--) {
+                value *= 3;
+
+                if ((black & (1L << squares[k])) != 0)
+                    value += 1;
+                else if ((white & (1L << squares[k])) != 0)
+                    value += 2;
+            }
+
+            index[n] = value;
+        }
+    }
+
+    /*
+     * Applies a move of the given color (sign 1) or takes it back (sign -1):
+     * the placed square goes from empty to color, the flipped squares
+     * change between the two colors.
+     */
+    public static void update(int index[], long placed, long flips, int color, int sign) {
+        int place = sign * (color + 1);
+        int flip = color == Position.BLACK ? -sign : sign;
+
+        for (; placed != 0; placed &= placed - 1) {
+            int bit = Long.numberOfTrailingZeros(placed);
+            int instance[] = BIT_INSTANCE[bit];
+            int power[] = BIT_POWER[bit];
+
+            for (int k = 0; k < instance.length; k++)
+                index[instance[k]] += place * power[k];
+        }
+
+        for (; flips != 0; flips &= flips - 1) {
+            int bit = Long.numberOfTrailingZeros(flips);
+            int instance[] = BIT_INSTANCE[bit];
+            int power[] = BIT_POWER[bit];
+
+            for (int k = 0; k < instance.length; k++)
+                index[instance[k]] += flip * power[k];
+        }
+    }
+
+    public static int getType(int instance) {
+        return INSTANCE_TYPE[instance];
+    }
+
+    public static int getOffset(int instance) {
+        return TYPE_OFFSET[INSTANCE_TYPE[instance]];
+    }
+
+    public static int getTypeOffset(int type) {
+        return TYPE_OFFSET[type];
+    }
+
+    public static int getTypeLength(int type) {
+        return SHAPE[type].length;
+    }
+
+    public static int getSquare(int type, int k) {
+        return SHAPE[type][k][0] * SIZE + SHAPE[type][k][1];
+    }
+
+}
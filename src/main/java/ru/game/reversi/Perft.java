@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.util.ArrayList;
+import  java.util.List;
+import  java.util.concurrent.ForkJoinPool;
+import  java.util.concurrent.RecursiveTask;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Position;
+
+/*
+ * Counts the leaf nodes of the game tree from the start position to a
+ * fixed depth. A pass is a move of its own and a finished game is a leaf
+ * wherever it ends. The last ply is counted in bulk from the move count,
+ * subtree counts can be cached in a hash table shared by all threads and
+ * the second ply is split across a ForkJoinPool.
+ *
+ * usage: perft [size] [depth] [hash MB, 0 for none] [threads]
+ */
+public class Perft {
+
+    private static final long REFERENCE_8[] = {
+        1L, 4L, 12L, 56L, 244L, 1396L, 8200L, 55092L, 390216L, 3005288L, 24571284L, 212258800L, 1939886636L
+    };
+
+    private static final long DEPTH_KEY = 0x9e3779b97f4a7c15L;
+
+    private long table[];
+    private int mask;
+
+    public Perft(int hashSize) {
+        if (hashSize > 0) {
+            int entries = Integer.highestOneBit((int)Math.min(1 << 30, hashSize * 1024L * 1024L / 16));
+
+            table = new long[2 * entries];
+            mask = entries - 1;
+        }
+    }
+
+    public static void run(String args[]) {
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int hashSize = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        System.out.printf("size %d, hash %d MB, %d threads%n", size, hashSize, threads);
+        System.out.printf("%6s %16s %12s %14s %10s%n", "depth", "nodes", "time, ms", "knodes/s", "reference");
+
+        for (int d = 1; d <= depth; d++) {
+            Perft perft = new Perft(hashSize);
+            BitBoard board = BitBoard.create(new Position(size), Position.WHITE);
+
+            long start = System.nanoTime();
+            long nodes = perft.count(pool, board, d);
+            long time = System.nanoTime() - start;
+
+            String check = "";
+            if (size == 8 && d < REFERENCE_8.length)
+                check = nodes == REFERENCE_8[d] ? "ok" : "MISMATCH";
+
+            System.out.printf("%6d %16d %12.1f %14.0f %10s%n", d, nodes, time / 1e6,
+                              nodes / (time / 1e6), check);
+        }
+
+        pool.shutdown();
+    }
+
+    public long count(ForkJoinPool pool, BitBoard board, int depth) {
+        if (depth < 3)
+            return this.count(board, depth, new int[depth + 1][board.getSize() * board.getSize()]);
+
+        List<RecursiveTask<Long>> tasks = new ArrayList<>();
+        this.split(board, depth, 2, tasks);
+
+        for (RecursiveTask<Long> task : tasks)
+            pool.execute(task);
+
+        long nodes = 0;
+        for (RecursiveTask<Long> task : tasks)
+            nodes += task.join();
+
+        return nodes;
+    }
+
+    private void split(BitBoard board, int depth, int plies, List<RecursiveTask<Long>> tasks) {
+        if (plies == 0 || depth == 0) {
+            BitBoard copy = board.copy();
+
+            tasks.add(new RecursiveTask<Long>() {
+                @Override
+                protected Long compute() {
+                    int size = copy.getSize();
+                    return Perft.this.count(copy, depth, new int[depth + 1][size * size]);
+                }
+            });
+            return;
+        }
+
+        int moves[] = new int[board.getSize() * board.getSize()];
+        int count = board.generateMoves(moves, 0);
+
+        if (count == 0) {
+            if (board.calculateOpponentMobility() == 0) {
+                this.split(board, 0, 0, tasks);
+                return;
+            }
+
+            board.pass();
+            this.split(board, depth - 1, plies - 1, tasks);
+            board.undo();
+            return;
+        }
+
+        for (int k = 0; k < count; k++) {
+            board.play(moves[k]);
+            this.split(board, depth - 1, plies - 1, tasks);
+            board.undo();
+        }
+    }
+
+    private long count(BitBoard board, int depth, int moves[][]) {
+        if (depth == 0)
+            return 1;
+
+        int count = board.generateMoves(moves[depth], 0);
+
+        if (depth == 1) {
+            if (count > 0)
+                return count;
+
+            return 1;
+        }
+
+        long key = 0;
+        int index = 0;
+
+        if (table != null) {
+            key = board.getHash() ^ depth * DEPTH_KEY;
+            index = 2 * (int)(key & mask);
+
+            long nodes = table[index + 1];
+            if ((table[index] ^ nodes) == key)
+                return nodes;
+        }
+
+        long nodes = 0;
+
+        if (count == 0) {
+            if (board.calculateOpponentMobility() == 0)
+                return 1;
+
+            board.pass();
+            nodes = this.count(board, depth - 1, moves);
+            board.undo();
+        } else {
+            for (int k = 0; k < count; k++) {
+                board.play(moves[depth][k]);
+                nodes += this.count(board, depth - 1, moves);
+                board.undo();
+            }
+        }
+
+        if (table != null) {
+            table[index] = key ^ nodes;
+            table[index + 1] = nodes;
+        }
+
+        return nodes;
+    }
+
+}
@@ -0,0 +1,401 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.util.Arrays;
+
+/*
+ * Game state without any AWT/Swing dependency. Cells are kept in a flat
+ * array indexed by i * size + j, colors are plain ints so that positions
+ * can be copied and searched without Stone objects.
+ *
+ * Only empty cells next to a stone can be places, so these cells are kept
+ * in a frontier set (a dense array plus the index of every cell in it) and
+ * all place lookups walk the frontier instead of the whole board.
+ *
+ * Every setStone() is pushed onto a journal: the flipped cells, the cells
+ * that joined the frontier and the move itself, so undo() takes it back
+ * in O(flips) without copying the position. The journal is allocated once
+ * in the constructor for every move left on the board, so neither play nor
+ * undo allocates; a copy starts with an empty journal.
+ */
+public class Position {
+
+    public static final int EMPTY = -1;
+    public static final int BLACK = 0;
+    public static final int WHITE = 1;
+
+    private static final int DI[] = { 0, 0, -1, 1, -1, 1, -1, 1 };
+    private static final int DJ[] = { -1, 1, 0, 0, -1, 1, 1, -1 };
+
+    /* journal words after the cells of a move: square, color, flips, added cells, was in frontier */
+    private static final int MOVE_HEADER = 5;
+
+    private byte cell[];
+    private boolean place[];
+    private int placeCount[];
+    private int stoneCount[];
+    private int flips[];
+    private short frontier[];
+    private short frontierIndex[];
+    private int frontierCount;
+    private int journal[];
+    private int journalSize;
+    private int moveCount;
+    private int size;
+
+    public Position(int size) {
+        this.size = size;
+
+        cell = new byte[size * size];
+        place = new boolean[2 * size * size];
+        placeCount = new int[2];
+        stoneCount = new int[2];
+        flips = new int[8 * size];
+        frontier = new short[size * size];
+        frontierIndex = new short[size * size];
+
+        for (int k = 0; k < size * size; k++) {
+            cell[k] = EMPTY;
+            frontierIndex[k] = -1;
+        }
+
+        int center = size / 2;
+        cell[(center - 0) * size + center - 1] = BLACK;
+        cell[(center - 0) * size + center - 0] = WHITE;
+        cell[(center - 1) * size + center - 1] = WHITE;
+        cell[(center - 1) * size + center - 0] = BLACK;
+        stoneCount[BLACK] = 2;
+        stoneCount[WHITE] = 2;
+
+        for (int k = 0; k < size * size; k++) {
+            if (cell[k] != EMPTY)
+                this.updateFrontier(k, flips, 0);
+        }
+
+        journal = new int[this.calculateJournalCapacity()];
+        this.calculateAvailablePlace();
+    }
+
+    public Position(Position position) {
+        size = position.size;
+        cell = position.cell.clone();
+        place = position.place.clone();
+        placeCount = position.placeCount.clone();
+        stoneCount = position.stoneCount.clone();
+        flips = new int[8 * size];
+        frontier = position.frontier.clone();
+        frontierIndex = position.frontierIndex.clone();
+        frontierCount = position.frontierCount;
+        journal = new int[this.calculateJournalCapacity()];
+    }
+
+    /*
+     * At most one move per empty cell, each with fewer than 8 * size flips,
+     * and along one line of play every cell joins the frontier only once.
+     */
+    private int calculateJournalCapacity() {
+        int empty = size * size - stoneCount[BLACK] - stoneCount[WHITE];
+
+        return empty * (8 * size + MOVE_HEADER) + size * size;
+    }
+
+    public static int opponent(int color) {
+        return color ^ 1;
+    }
+
+    private void calculateAvailablePlace() {
+        for (int k = 0; k < frontierCount; k++)
+            this.updatePlace(frontier[k]);
+    }
+
+    /*
+     * Called when a stone is put on index: the cell leaves the frontier and
+     * its empty neighbours join it. The joined cells are written to added
+     * from offset on, their count is returned.
+     */
+    private int updateFrontier(int index, int added[], int offset) {
+        int count = 0;
+
+        this.removeFrontier(index);
+
+        int i = index / size;
+        int j = index % size;
+
+        for (int d = 0; d < 8; d++) {
+            int k = i + DI[d];
+            int l = j + DJ[d];
+
+            if (k >= 0 && l >= 0 && k < size && l < size && cell[k * size + l] == EMPTY
+                    && frontierIndex[k * size + l] < 0) {
+                this.insertFrontier(k * size + l);
+                added[offset + count++] = k * size + l;
+            }
+        }
+
+        return count;
+    }
+
+    private void insertFrontier(int index) {
+        frontierIndex[index] = (short)frontierCount;
+        frontier[frontierCount++] = (short)index;
+    }
+
+    private void removeFrontier(int index) {
+        int slot = frontierIndex[index];
+        if (slot < 0)
+            return;
+
+        int last = frontier[--frontierCount];
+
+        frontier[slot] = (short)last;
+        frontierIndex[last] = (short)slot;
+        frontierIndex[index] = -1;
+    }
+
+    private void updatePlaceAround(int index) {
+        int i = index / size;
+        int j = index % size;
+
+        for (int d = 0; d < 8; d++) {
+            int k = i + DI[d];
+            int l = j + DJ[d];
+
+            while (k >= 0 && l >= 0 && k < size && l < size && cell[k * size + l] != EMPTY) {
+                k += DI[d];
+                l += DJ[d];
+            }
+
+            if (k >= 0 && l >= 0 && k < size && l < size)
+                this.updatePlace(k * size + l);
+        }
+    }
+
+    private void updatePlace(int index) {
+        for (int color = BLACK; color <= WHITE; color++) {
+            boolean value = frontierIndex[index] >= 0
+                && this.calculateTransformationGain(index / size, index % size, color) > 0;
+
+            if (place[color * size * size + index] != value) {
+                place[color * size * size + index] = value;
+                placeCount[color] += value ? 1 : -1;
+            }
+        }
+    }
+
+    public int calculateAvailablePlaceCount(int color) {
+        return placeCount[color];
+    }
+
+    /*
+     * Writes the places of color, as i * size + j, to places and returns
+     * their count; the order follows the frontier, not the board.
+     */
+    public int generatePlaces(int color, int places[]) {
+        int count = 0;
+
+        for (int k = 0; k < frontierCount; k++) {
+            if (place[color * size * size + frontier[k]])
+                places[count++] = frontier[k];
+        }
+
+        return count;
+    }
+
+    public int getFrontierCount() {
+        return frontierCount;
+    }
+
+    public int calculateFlips(int i, int j, int color, int flips[]) {
+        int count = 0;
+
+        for (int d = 0; d < 8; d++) {
+            int length = this.calculateRayGain(i, j, d, color);
+
+            for (int k = i + DI[d], l = j + DJ[d]; length > 0; k += DI[d], l += DJ[d], length--)
+                flips[count++] = k * size + l;
+        }
+
+        return count;
+    }
+
+    public int calculateTransformationGain(int i, int j, int color) {
+        int gain = 0;
+
+        for (int d = 0; d < 8; d++)
+            gain += this.calculateRayGain(i, j, d, color);
+
+        return gain;
+    }
+
+    private int calculateRayGain(int i, int j, int d, int color) {
+        int k = i + DI[d];
+        int l = j + DJ[d];
+        int length = 0;
+
+        while (k >= 0 && l >= 0 && k < size && l < size && cell[k * size + l] == opponent(color)) {
+            k += DI[d];
+            l += DJ[d];
+            length++;
+        }
+
+        if (k < 0 || l < 0 || k >= size || l >= size || cell[k * size + l] != color)
+            return 0;
+
+        return length;
+    }
+
+    public int calculateStoneCount(int color) {
+        return stoneCount[color];
+    }
+
+    public int calculateWinningColor() {
+        if (this.calculateStoneCount(WHITE) > this.calculateStoneCount(BLACK))
+            return WHITE;
+
+        return BLACK;
+    }
+
+    public boolean isPlaceOn(int i, int j, int color) {
+        if (i < 0 || j < 0 || i >= size || j >= size)
+            return false;
+
+        return place[color * size * size + i * size + j];
+    }
+
+    public boolean isStoneOn(int i, int j) {
+        if (i < 0 || j < 0 || i >= size || j >= size)
+            return false;
+
+        return cell[i * size + j] != EMPTY;
+    }
+
+    public int getColor(int i, int j) {
+        return cell[i * size + j];
+    }
+
+    public void setStone(int i, int j, int color) {
+        this.setStone(i, j, color, flips);
+    }
+
+    public int setStone(int i, int j, int color, int flips[]) {
+        int count = this.calculateFlips(i, j, color, flips);
+        int square = i * size + j;
+        boolean frontierSquare = frontierIndex[square] >= 0;
+
+        cell[square] = (byte)color;
+
+        for (int k = 0; k < count; k++) {
+            cell[flips[k]] = (byte)color;
+            journal[journalSize++] = flips[k];
+        }
+
+        stoneCount[color] += count + 1;
+        stoneCount[opponent(color)] -= count;
+
+        int added = this.updateFrontier(square, journal, journalSize);
+        journalSize += added;
+
+        journal[journalSize++] = square;
+        journal[journalSize++] = color;
+        journal[journalSize++] = count;
+        journal[journalSize++] = added;
+        journal[journalSize++] = frontierSquare ? 1 : 0;
+        moveCount++;
+
+        this.updatePlace(i * size + j);
+        this.updatePlaceAround(i * size + j);
+
+        for (int k = 0; k < count; k++)
+            this.updatePlaceAround(flips[k]);
+
+        return count;
+    }
+
+    public void undo() {
+        this.undo(flips);
+    }
+
+    /*
+     * Takes back the last setStone(); the cells that turn back are written
+     * to flips and their count is returned.
+     */
+    public int undo(int flips[]) {
+        if (moveCount == 0)
+            throw new IllegalStateException("no move to undo");
+
+        boolean frontierSquare = journal[--journalSize] != 0;
+        int added = journal[--journalSize];
+        int count = journal[--journalSize];
+        int color = journal[--journalSize];
+        int square = journal[--journalSize];
+
+        moveCount--;
+
+        for (int k = 0; k < added; k++)
+            this.removeFrontier(journal[--journalSize]);
+
+        journalSize -= count;
+        for (int k = 0; k < count; k++) {
+            flips[k] = journal[journalSize + k];
+            cell[flips[k]] = (byte)opponent(color);
+        }
+
+        cell[square] = EMPTY;
+        stoneCount[color] -= count + 1;
+        stoneCount[opponent(color)] += count;
+
+        if (frontierSquare)
+            this.insertFrontier(square);
+
+        this.updatePlace(square);
+        this.updatePlaceAround(square);
+
+        for (int k = 0; k < count; k++)
+            this.updatePlaceAround(flips[k]);
+
+        return count;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getLastMove() {
+        return moveCount == 0 ? -1 : journal[journalSize - MOVE_HEADER];
+    }
+
+    public int getLastColor() {
+        return moveCount == 0 ? EMPTY : journal[journalSize - MOVE_HEADER + 1];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isSameStones(Position position) {
+        return size == position.size && Arrays.equals(cell, position.cell);
+    }
+
+}
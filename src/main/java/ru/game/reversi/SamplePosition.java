@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.util.Random;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.GameRecord;
+import  ru.game.reversi.Position;
+
+/*
+ * Reproducible positions for benchmarks: random legal moves from the
+ * start position with a fixed seed.
+ */
+public class SamplePosition {
+
+    private Position position;
+    private int color;
+    private GameRecord record;
+
+    private SamplePosition(Position position, int color, GameRecord record) {
+        this.record = record;
+        this.position = position;
+        this.color = color;
+    }
+
+    public static SamplePosition create(int size, int plies, long seed) {
+        Random random = new Random(seed);
+        Position position = new Position(size);
+        int color = Position.WHITE;
+        int moves[] = new int[size * size];
+        GameRecord record = new GameRecord(size, color);
+
+        for (int k = 0; k < plies; k++) {
+            if (position.calculateAvailablePlaceCount(color) == 0) {
+                if (position.calculateAvailablePlaceCount(Position.opponent(color)) == 0)
+                    break;
+
+                color = Position.opponent(color);
+                record.addPass();
+            }
+
+            int count = BitBoard.create(position, color).generateMoves(moves, 0);
+
+            int move = moves[random.nextInt(count)];
+            position.setStone(move / size, move % size, color);
+            record.addMove(move);
+            color = Position.opponent(color);
+        }
+
+        return new SamplePosition(position, color, record);
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    /* moves from the start position that lead here */
+    public GameRecord getRecord() {
+        return record;
+    }
+
+}
@@ -0,0 +1,361 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Evaluator;
+import  ru.game.reversi.MoveOrdering;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.TranspositionTable;
+
+/*
+ * Negamax with alpha-beta pruning and iterative deepening. The search
+ * stops when the time or node budget runs out and reports the best move
+ * of the last completed iteration. Results are shared between iterations
+ * and moves through the transposition table.
+ */
+public class Search {
+
+    public interface Listener {
+
+        void update(int depth, int move, int score, long nodes);
+
+    }
+
+    public static final int SCORE_DISC = 100;
+    public static final int INFINITY = 1 << 24;
+    public static final int MAX_PLY = 128;
+
+    private static final int ASPIRATION_WINDOW = SCORE_DISC / 2;
+    private static final int CHECK_INTERVAL = 1023;
+
+    private Evaluator evaluator;
+    private TranspositionTable table;
+    private MoveOrdering ordering;
+    private BitBoard board;
+
+    private long timeLimit;
+    private long nodeLimit;
+    private int depthLimit;
+    private int depthStart;
+
+    private long deadline;
+    private long nodes;
+    private long tableProbes;
+    private long tableHits;
+    private boolean abort;
+    private volatile boolean stopped;
+    private volatile boolean pondering;
+    private Listener listener;
+
+    private int moves[][];
+    private int rootMoves[];
+    private int rootCount;
+    private int rootBestMove;
+
+    private int bestMove;
+    private int bestScore;
+    private int depth;
+
+    public Search(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+
+        depthLimit = MAX_PLY / 2 - 1;
+        depthStart = 1;
+        moves = new int[0][];
+        ordering = new MoveOrdering(MAX_PLY);
+    }
+
+    public void setTimeLimit(long milliseconds) {
+        timeLimit = milliseconds;
+    }
+
+    public void setNodeLimit(long nodes) {
+        nodeLimit = nodes;
+    }
+
+    public void setDepthLimit(int depth) {
+        depthLimit = Math.min(depth, MAX_PLY / 2 - 1);
+    }
+
+    public void setDepthStart(int depth) {
+        depthStart = depth;
+    }
+
+    public void setStopped(boolean stopped) {
+        this.stopped = stopped;
+    }
+
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int search(BitBoard board) {
+        this.board = board;
+        this.prepareBuffers(board.getSize());
+        ordering.prepare(board.getSize());
+
+        deadline = System.nanoTime() + timeLimit * 1000000;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        abort = false;
+
+        bestMove = -1;
+        bestScore = 0;
+        depth = 0;
+
+        rootCount = board.generateMoves(rootMoves, 0);
+        if (rootCount == 0)
+            return bestMove;
+
+        bestMove = rootMoves[0];
+        if (rootCount == 1)
+            return bestMove;
+
+        int empty = board.getEmptyCount();
+
+        for (int d = Math.min(depthStart, empty); d <= depthLimit && d <= empty; d++) {
+            int alpha = -INFINITY;
+            int beta = INFINITY;
+
+            if (d > 2) {
+                alpha = bestScore - ASPIRATION_WINDOW;
+                beta = bestScore + ASPIRATION_WINDOW;
+            }
+
+            int score;
+            while (true) {
+                score = this.searchRoot(d, alpha, beta);
+
+                if (abort)
+                    break;
+
+                if (score <= alpha)
+                    alpha = -INFINITY;
+                else if (score >= beta)
+                    beta = INFINITY;
+                else
+                    break;
+            }
+
+            if (abort)
+                break;
+
+            bestMove = rootBestMove;
+            bestScore = score;
+            depth = d;
+
+            if (listener != null)
+                listener.update(depth, bestMove, bestScore, nodes);
+        }
+
+        return bestMove;
+    }
+
+    private void prepareBuffers(int size) {
+        if (rootMoves != null && rootMoves.length == size * size)
+            return;
+
+        rootMoves = new int[size * size];
+        moves = new int[MAX_PLY][size * size];
+    }
+
+    private int searchRoot(int depth, int alpha, int beta) {
+        int best = -INFINITY;
+
+        for (int k = 0; k < rootCount; k++) {
+            int move = rootMoves[k];
+
+            board.play(move);
+            int score = -this.negamax(depth - 1, -beta, -Math.max(alpha, best), 1);
+            board.undo();
+
+            if (abort)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                rootBestMove = move;
+
+                for (int l = k; l > 0; l--)
+                    rootMoves[l] = rootMoves[l - 1];
+                rootMoves[0] = move;
+
+                if (best >= beta)
+                    break;
+            }
+        }
+
+        return best;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if ((++nodes & CHECK_INTERVAL) == 0)
+            this.checkLimits();
+
+        if (abort)
+            return 0;
+
+        if (depth == 0) {
+            if (board.getEmptyCount() == 0)
+                return this.calculateFinalScore();
+
+            return evaluator.evaluate(board);
+        }
+
+        long hash = board.getHash();
+        long entry = table.probe(hash);
+        int hashMove = -1;
+
+        tableProbes++;
+        if (entry != 0) {
+            tableHits++;
+            hashMove = TranspositionTable.getMove(entry);
+
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                int score = TranspositionTable.getScore(entry);
+                int bound = TranspositionTable.getBound(entry);
+
+                if (bound == TranspositionTable.BOUND_EXACT)
+                    return score;
+                else if (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    return score;
+                else if (bound == TranspositionTable.BOUND_UPPER && score <= alpha)
+                    return score;
+            }
+        }
+
+        int buffer[] = moves[ply];
+        int count = board.generateMoves(buffer, 0);
+
+        if (count == 0) {
+            if (board.calculateOpponentMobility() == 0)
+                return this.calculateFinalScore();
+
+            board.pass();
+            int score = -this.negamax(depth, -beta, -alpha, ply + 1);
+            board.undo();
+
+            return score;
+        }
+
+        ordering.sortMoves(board, buffer, count, ply, depth, hashMove);
+
+        int best = -INFINITY;
+        int bestMove = -1;
+        int bound = TranspositionTable.BOUND_UPPER;
+
+        for (int k = 0; k < count; k++) {
+            board.play(buffer[k]);
+            int score = -this.negamax(depth - 1, -beta, -alpha, ply + 1);
+            board.undo();
+
+            if (abort)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = buffer[k];
+
+                if (score > alpha) {
+                    alpha = score;
+                    bound = TranspositionTable.BOUND_EXACT;
+                }
+
+                if (alpha >= beta) {
+                    bound = TranspositionTable.BOUND_LOWER;
+                    ordering.updateCutoff(bestMove, k, depth, ply);
+                    break;
+                }
+            }
+        }
+
+        table.store(hash, depth, bound, best, bestMove);
+
+        return best;
+    }
+
+    private int calculateFinalScore() {
+        int color = board.getColor();
+        int player = board.getStoneCount(color);
+        int opponent = board.getStoneCount(Position.opponent(color));
+        int empty = board.getEmptyCount();
+
+        if (player > opponent)
+            return (player - opponent + empty) * SCORE_DISC;
+        else if (player < opponent)
+            return (player - opponent - empty) * SCORE_DISC;
+
+        return 0;
+    }
+
+    private void checkLimits() {
+        if (stopped)
+            abort = true;
+
+        if (pondering)
+            return;
+
+        if (timeLimit > 0 && System.nanoTime() > deadline)
+            abort = true;
+
+        if (nodeLimit > 0 && nodes > nodeLimit)
+            abort = true;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    public MoveOrdering getOrdering() {
+        return ordering;
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Patterns;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.Zobrist;
+
+/*
+ * Boards up to 8x8 packed into a single long, bit i * 8 + j for cell (i, j).
+ * Smaller boards use the top-left corner of the 8x8 frame, the unused
+ * cells are never set and are cut off by the board mask.
+ */
+public class SmallBitBoard extends BitBoard {
+
+    public static final int WIDTH = 8;
+
+    private static final long NOT_A = 0xfefefefefefefefeL;
+    private static final long NOT_H = 0x7f7f7f7f7f7f7f7fL;
+
+    private static final int DI[] = { 0, 1, 1, 1, 0, -1, -1, -1 };
+    private static final int DJ[] = { 1, -1, 0, 1, -1, 1, 0, -1 };
+
+    private static final long RAY[][] = new long[WIDTH * WIDTH][8];
+    private static final long NEIGHBOURS[] = new long[WIDTH * WIDTH];
+
+    static {
+        for (int bit = 0; bit < WIDTH * WIDTH; bit++) {
+            for (int d = 0; d < 8; d++) {
+                int i = bit / WIDTH + DI[d];
+                int j = bit % WIDTH + DJ[d];
+
+                if (i >= 0 && j >= 0 && i < WIDTH && j < WIDTH)
+                    NEIGHBOURS[bit] |= 1L << (i * WIDTH + j);
+
+                for (; i >= 0 && j >= 0 && i < WIDTH && j < WIDTH; i += DI[d], j += DJ[d])
+                    RAY[bit][d] |= 1L << (i * WIDTH + j);
+            }
+        }
+    }
+
+    private long player;
+    private long opponent;
+    private long mask;
+
+    private long journal[];
+    private int squareBit[];
+    private int bitSquare[];
+    private long flipKey[];
+    private long placeKey[][];
+    private int pattern[];
+
+    public SmallBitBoard(Position position, int color) {
+        super(position.getSize(), color);
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                mask |= 1L << (i * WIDTH + j);
+
+                if (position.getColor(i, j) == color)
+                    player |= 1L << (i * WIDTH + j);
+                else if (position.getColor(i, j) == Position.opponent(color))
+                    opponent |= 1L << (i * WIDTH + j);
+            }
+        }
+
+        journal = new long[2 * calculateJournalCapacity(position)];
+        hashJournal = new long[calculateJournalCapacity(position)];
+        this.createSquareTables();
+        hash = Zobrist.calculateHash(this);
+    }
+
+    private SmallBitBoard(SmallBitBoard board) {
+        super(board.size, board.color);
+
+        player = board.player;
+        opponent = board.opponent;
+        mask = board.mask;
+        ply = board.ply;
+        journal = board.journal.clone();
+        hash = board.hash;
+        hashJournal = board.hashJournal.clone();
+        squareBit = board.squareBit;
+        bitSquare = board.bitSquare;
+        flipKey = board.flipKey;
+        placeKey = board.placeKey;
+        pattern = board.pattern != null ? board.pattern.clone() : null;
+    }
+
+    private void createSquareTables() {
+        squareBit = new int[size * size];
+        bitSquare = new int[WIDTH * WIDTH];
+        flipKey = new long[WIDTH * WIDTH];
+        placeKey = new long[2][WIDTH * WIDTH];
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                squareBit[i * size + j] = i * WIDTH + j;
+                bitSquare[i * WIDTH + j] = i * size + j;
+                flipKey[i * WIDTH + j] = Zobrist.getFlipKey(i * size + j);
+                placeKey[Position.BLACK][i * WIDTH + j] = Zobrist.getKey(Position.BLACK, i * size + j) ^ Zobrist.getSideKey();
+                placeKey[Position.WHITE][i * WIDTH + j] = Zobrist.getKey(Position.WHITE, i * size + j) ^ Zobrist.getSideKey();
+            }
+        }
+    }
+
+    public static long calculateMoves(long player, long opponent, long mask) {
+        long empty = ~(player | opponent) & mask;
+
+        return calculateMovesLeft(player, opponent, empty & NOT_A, 1, NOT_A)
+             | calculateMovesLeft(player, opponent, empty & NOT_H, 7, NOT_H)
+             | calculateMovesLeft(player, opponent, empty, 8, -1L)
+             | calculateMovesLeft(player, opponent, empty & NOT_A, 9, NOT_A)
+             | calculateMovesRight(player, opponent, empty & NOT_H, 1, NOT_H)
+             | calculateMovesRight(player, opponent, empty & NOT_A, 7, NOT_A)
+             | calculateMovesRight(player, opponent, empty, 8, -1L)
+             | calculateMovesRight(player, opponent, empty & NOT_H, 9, NOT_H);
+    }
+
+    private static long calculateMovesLeft(long player, long opponent, long empty, int shift, long wrap) {
+        long propagator = opponent & wrap;
+        long generator = (player << shift) & propagator;
+
+        generator |= propagator & (generator << shift);
+        propagator &= propagator << shift;
+        generator |= propagator & (generator << (shift << 1));
+        propagator &= propagator << (shift << 1);
+        generator |= propagator & (generator << (shift << 2));
+
+        return (generator << shift) & empty;
+    }
+
+    private static long calculateMovesRight(long player, long opponent, long empty, int shift, long wrap) {
+        long propagator = opponent & wrap;
+        long generator = (player >>> shift) & propagator;
+
+        generator |= propagator & (generator >>> shift);
+        propagator &= propagator >>> shift;
+        generator |= propagator & (generator >>> (shift << 1));
+        propagator &= propagator >>> (shift << 1);
+        generator |= propagator & (generator >>> (shift << 2));
+
+        return (generator >>> shift) & empty;
+    }
+
+    public static long calculateFlips(long player, long opponent, int bit) {
+        long ray[] = RAY[bit];
+        long flips = 0;
+
+        for (int d = 0; d < 4; d++) {
+            long blocker = ray[d] & ~opponent;
+            long first = blocker & -blocker;
+
+            if ((first & player) != 0)
+                flips |= (first - 1) & ray[d];
+        }
+
+        for (int d = 4; d < 8; d++) {
+            long first = Long.highestOneBit(ray[d] & ~opponent);
+
+            if ((first & player) != 0)
+                flips |= ray[d] & -(first << 1);
+        }
+
+        return flips;
+    }
+
+    public static long getNeighbours(int bit) {
+        return NEIGHBOURS[bit];
+    }
+
+    @Override
+    public int generateMoves(int moves[], int offset) {
+        long set = calculateMoves(player, opponent, mask);
+        int count = 0;
+
+        while (set != 0) {
+            moves[offset + count++] = bitSquare[Long.numberOfTrailingZeros(set)];
+            set &= set - 1;
+        }
+
+        return count;
+    }
+
+    @Override
+    public int calculateMobility() {
+        return Long.bitCount(calculateMoves(player, opponent, mask));
+    }
+
+    @Override
+    public int calculateOpponentMobility() {
+        return Long.bitCount(calculateMoves(opponent, player, mask));
+    }
+
+    @Override
+    public boolean isMove(int square) {
+        int bit = squareBit[square];
+
+        return ((player | opponent) & (1L << bit)) == 0 && calculateFlips(player, opponent, bit) != 0;
+    }
+
+    @Override
+    public int calculateFlipCount(int square) {
+        return Long.bitCount(calculateFlips(player, opponent, squareBit[square]));
+    }
+
+    @Override
+    public int play(int square) {
+        int bit = squareBit[square];
+        long flips = calculateFlips(player, opponent, bit);
+
+        journal[2 * ply + 0] = player;
+        journal[2 * ply + 1] = opponent;
+        hashJournal[ply] = hash;
+        ply++;
+
+        hash ^= placeKey[color][bit];
+        for (long set = flips; set != 0; set &= set - 1)
+            hash ^= flipKey[Long.numberOfTrailingZeros(set)];
+
+        if (pattern != null)
+            Patterns.update(pattern, 1L << bit, flips, color, 1);
+
+        long next = opponent ^ flips;
+        opponent = player | flips | (1L << bit);
+        player = next;
+        color = Position.opponent(color);
+
+        return Long.bitCount(flips);
+    }
+
+    @Override
+    public void pass() {
+        journal[2 * ply + 0] = player;
+        journal[2 * ply + 1] = opponent;
+        hashJournal[ply] = hash;
+        ply++;
+
+        hash ^= Zobrist.getSideKey();
+
+        long next = opponent;
+        opponent = player;
+        player = next;
+        color = Position.opponent(color);
+    }
+
+    @Override
+    public void undo() {
+        ply--;
+
+        if (pattern != null) {
+            long changed = opponent ^ journal[2 * ply + 0];
+            long flips = changed & journal[2 * ply + 1];
+
+            Patterns.update(pattern, changed ^ flips, flips, Position.opponent(color), -1);
+        }
+
+        player = journal[2 * ply + 0];
+        opponent = journal[2 * ply + 1];
+        hash = hashJournal[ply];
+        color = Position.opponent(color);
+    }
+
+    @Override
+    public int getStone(int square) {
+        long bit = 1L << squareBit[square];
+
+        if ((player & bit) != 0)
+            return color;
+        else if ((opponent & bit) != 0)
+            return Position.opponent(color);
+
+        return Position.EMPTY;
+    }
+
+    @Override
+    public int getStoneCount(int color) {
+        return Long.bitCount(color == this.color ? player : opponent);
+    }
+
+    @Override
+    public BitBoard copy() {
+        return new SmallBitBoard(this);
+    }
+
+    public long getPlayer() {
+        return player;
+    }
+
+    public long getOpponent() {
+        return opponent;
+    }
+
+    public long getMask() {
+        return mask;
+    }
+
+    /*
+     * Starts keeping the pattern indices of an 8x8 board up to date on
+     * every play() and undo().
+     */
+    public int[] enablePatterns() {
+        if (pattern == null) {
+            pattern = new int[Patterns.INSTANCE_COUNT];
+
+            if (color == Position.BLACK)
+                Patterns.calculateIndices(player, opponent, pattern);
+            else
+                Patterns.calculateIndices(opponent, player, pattern);
+        }
+
+        return pattern;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  ru.game.reversi.Engine;
+import  ru.game.reversi.SamplePosition;
+
+/*
+ * Time-to-depth of the parallel search on fixed positions.
+ *
+ * usage: speedup [size] [depth] [positions] [threads...]
+ */
+public class SpeedupBenchmark {
+
+    public static void run(String args[]) {
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 11;
+        int count = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+
+        int threads[] = new int[] { 1, 2, 4, 8, 16 };
+        if (args.length > 4) {
+            threads = new int[args.length - 4];
+
+            for (int k = 0; k < threads.length; k++)
+                threads[k] = Integer.parseInt(args[k + 4]);
+        }
+
+        SamplePosition position[] = new SamplePosition[count];
+        for (int k = 0; k < count; k++)
+            position[k] = SamplePosition.create(size, size * size / 4, k + 1);
+
+        System.out.printf("size %d, depth %d, %d positions, %d cores%n", size, depth, count,
+                          Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %12s %14s %12s %8s %8s%n", "threads", "time, ms", "nodes", "knodes/s", "speedup",
+                          "cut1, %");
+
+        double baseTime = 0;
+
+        for (int t = 0; t < threads.length; t++) {
+            Engine engine = new Engine(64, threads[t]);
+            engine.setDepthLimit(depth);
+
+            long time = 0;
+            long nodes = 0;
+            double cutoffRate = 0;
+
+            for (int k = 0; k < count; k++) {
+                engine.clearHash();
+
+                long start = System.nanoTime();
+                engine.calculateBestMove(position[k].getPosition(), position[k].getColor());
+                time += System.nanoTime() - start;
+                nodes += engine.getNodes();
+                cutoffRate += engine.getFirstMoveCutoffRate() / count;
+            }
+
+            engine.close();
+
+            if (t == 0)
+                baseTime = time;
+
+            System.out.printf("%8d %12.1f %14d %12.0f %8.2f %8.1f%n", threads[t], time / 1e6, nodes,
+                              nodes / (time / 1e6), baseTime / time, cutoffRate * 100);
+        }
+    }
+
+}
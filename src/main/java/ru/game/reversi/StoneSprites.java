@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.awt.*;
+import  java.awt.image.BufferedImage;
+
+/*
+ * Pre-rendered stones for one cell size. A stone only depends on how far
+ * it has turned from black to white, so FRAMES + 1 images cover both
+ * resting colors and every flip frame; drawing a stone is a single blit.
+ * The images are rebuilt when the cell size changes.
+ */
+public class StoneSprites {
+
+    public static final int FRAMES = 32;
+
+    private BufferedImage image[];
+    private int width;
+    private int height;
+
+    public StoneSprites() {
+        image = new BufferedImage[FRAMES + 1];
+    }
+
+    public void prepare(GraphicsConfiguration configuration, int width, int height) {
+        if (width == this.width && height == this.height && image[0] != null)
+            return;
+
+        this.width = width;
+        this.height = height;
+
+        for (int k = 0; k <= FRAMES; k++)
+            image[k] = this.render(configuration, (float)k / FRAMES);
+    }
+
+    private BufferedImage render(GraphicsConfiguration configuration, float whiteness) {
+        BufferedImage sprite = configuration != null
+                             ? configuration.createCompatibleImage(Math.max(1, width), Math.max(1, height),
+                                                                   Transparency.TRANSLUCENT)
+                             : new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+
+        int intensity = Math.max(0x0, Math.min(0xFF, (int)(0xFF * whiteness)));
+
+        java.awt.Color colorStart = new java.awt.Color(0x606060);
+        java.awt.Color colorEnd   = new java.awt.Color(intensity, intensity, intensity);
+
+        GradientPaint gradient = new GradientPaint(width / 2, 0, colorStart,
+                                                   width / 2, height,
+                                                   colorEnd, true);
+
+        int minSize = width < height ? width : height;
+        int stoneWidth  = (int)(minSize * 0.75);
+        int stoneHeight = (int)(minSize * 0.75);
+
+        if (whiteness > 0.5)
+            stoneWidth *= (whiteness - 0.5) * 2;
+        else
+            stoneWidth *= (0.5 - whiteness) * 2;
+
+        int stoneX = (width - stoneWidth) / 2;
+        int stoneY = (height - stoneHeight) / 2;
+
+        g.setPaint(gradient);
+        g.fillOval(stoneX, stoneY, stoneWidth, stoneHeight);
+
+        g.setColor(java.awt.Color.BLACK);
+        g.drawOval(stoneX, stoneY, stoneWidth, stoneHeight);
+        g.dispose();
+
+        return sprite;
+    }
+
+    public Image getImage(float whiteness) {
+        return image[Math.round(whiteness * FRAMES)];
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.IOException;
+import  java.io.UncheckedIOException;
+import  java.util.ArrayList;
+import  java.util.Arrays;
+import  java.util.List;
+import  java.util.concurrent.ExecutionException;
+import  java.util.concurrent.ExecutorService;
+import  java.util.concurrent.Executors;
+import  java.util.concurrent.Future;
+import  java.util.concurrent.atomic.AtomicInteger;
+import  ru.game.reversi.Engine;
+import  ru.game.reversi.GameRecord;
+import  ru.game.reversi.GameRecordWriter;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.SamplePosition;
+
+/*
+ * Headless engine-vs-engine matches. Every worker thread owns one engine
+ * per side and plays games until the requested number is reached; each
+ * random opening is played twice with colors swapped. The engine limit is
+ * d<depth>, t<milliseconds> or n<nodes> per move, weights "-" are the
+ * built-in ones. With -Dreversi.record=<file> every game is appended to
+ * a game record file.
+ *
+ * usage: selfplay [games] [sizes] [limit] [opening plies] [endgame] [weights A] [weights B] [threads]
+ */
+public class Tournament {
+
+    private static final int HASH_SIZE = 8;
+    private static final double Z_95 = 1.96;
+
+    private int games;
+    private int sizes[];
+    private String limit;
+    private int openingPlies;
+    private int endgameEmpties;
+    private String weights[];
+    private AtomicInteger next;
+    private GameRecordWriter recorder;
+
+    /* results per size: wins, draws and losses of A, moves and move time of A and B */
+    private long result[][];
+    private long maxLatency[];
+
+    public static void run(String args[]) {
+        Tournament tournament = new Tournament();
+
+        tournament.games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        tournament.sizes = parseSizes(args.length > 2 ? args[2] : "8");
+        tournament.limit = args.length > 3 ? args[3] : "d4";
+        tournament.openingPlies = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+        tournament.endgameEmpties = args.length > 5 ? Integer.parseInt(args[5]) : 12;
+        tournament.weights = new String[] {
+            args.length > 6 && !args[6].equals("-") ? args[6] : null,
+            args.length > 7 && !args[7].equals("-") ? args[7] : null
+        };
+
+        int threads = args.length > 8 ? Integer.parseInt(args[8]) : Runtime.getRuntime().availableProcessors();
+
+        tournament.play(threads);
+    }
+
+    private static int[] parseSizes(String text) {
+        String part[] = text.split(",");
+        int sizes[] = new int[part.length];
+
+        for (int k = 0; k < part.length; k++)
+            sizes[k] = Integer.parseInt(part[k].trim());
+
+        return sizes;
+    }
+
+    private void play(int threads) {
+        next = new AtomicInteger();
+        result = new long[sizes.length][7];
+        maxLatency = new long[2];
+
+        System.out.printf("%d games, sizes %s, limit %s, %d opening plies, %d threads%n", games,
+                          Arrays.toString(sizes), limit, openingPlies, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "reversi-selfplay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<?>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        String record = System.getProperty("reversi.record");
+
+        try {
+            if (record != null)
+                recorder = new GameRecordWriter(record);
+
+            for (int k = 0; k < threads; k++)
+                workers.add(executor.submit(this::work));
+
+            for (Future<?> worker : workers)
+                worker.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            this.closeRecorder();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%.1f s, %.2f games/s%n", seconds, games / seconds);
+        this.report();
+    }
+
+    /* applies a per-move limit given as d<depth>, t<milliseconds> or n<nodes> */
+    static void setLimit(Engine engine, String limit) {
+        if (limit.startsWith("d"))
+            engine.setDepthLimit(Integer.parseInt(limit.substring(1)));
+        else if (limit.startsWith("t"))
+            engine.setTimeLimit(Long.parseLong(limit.substring(1)));
+        else if (limit.startsWith("n"))
+            engine.setNodeLimit(Long.parseLong(limit.substring(1)));
+        else
+            throw new IllegalArgumentException("limit must be d<depth>, t<ms> or n<nodes>: " + limit);
+    }
+
+    private void closeRecorder() {
+        if (recorder == null)
+            return;
+
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void work() {
+        Engine engine[] = new Engine[2];
+        long local[][] = new long[sizes.length][7];
+        long latency[] = new long[2];
+
+        for (int k = 0; k < 2; k++) {
+            engine[k] = new Engine(HASH_SIZE, 1, weights[k]);
+            engine[k].setEndgameEmpties(endgameEmpties);
+            setLimit(engine[k], limit);
+        }
+
+        try {
+            for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement())
+                this.playGame(game, engine, local, latency);
+        } finally {
+            for (int k = 0; k < 2; k++)
+                engine[k].close();
+        }
+
+        synchronized (this) {
+            for (int s = 0; s < sizes.length; s++) {
+                for (int k = 0; k < local[s].length; k++)
+                    result[s][k] += local[s][k];
+            }
+
+            for (int k = 0; k < 2; k++)
+                maxLatency[k] = Math.max(maxLatency[k], latency[k]);
+        }
+    }
+
+    private void playGame(int game, Engine engine[], long result[][], long latency[]) {
+        int s = (game / 2) % sizes.length;
+        int size = sizes[s];
+        SamplePosition opening = SamplePosition.create(size, openingPlies, game / 2 + 1);
+        Position position = opening.getPosition();
+        int color = opening.getColor();
+        int colorA = game % 2 == 0 ? color : Position.opponent(color);
+        GameRecord record = new GameRecord(opening.getRecord());
+
+        engine[0].clearHash();
+        engine[1].clearHash();
+
+        while (true) {
+            if (position.calculateAvailablePlaceCount(color) == 0) {
+                if (position.calculateAvailablePlaceCount(Position.opponent(color)) == 0)
+                    break;
+
+                color = Position.opponent(color);
+                record.addPass();
+                continue;
+            }
+
+            int side = color == colorA ? 0 : 1;
+            long start = System.nanoTime();
+            int move = engine[side].calculateBestMove(position, color);
+            long time = System.nanoTime() - start;
+
+            if (move < 0 || !position.isPlaceOn(move / size, move % size, color))
+                throw new IllegalStateException("illegal move " + move + " in game " + game);
+
+            result[s][3 + 2 * side]++;
+            result[s][4 + 2 * side] += time;
+            latency[side] = Math.max(latency[side], time);
+
+            position.setStone(move / size, move % size, color);
+            record.addMove(move);
+            color = Position.opponent(color);
+        }
+
+        try {
+            if (recorder != null)
+                recorder.write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int difference = position.calculateStoneCount(colorA) - position.calculateStoneCount(Position.opponent(colorA));
+        if (difference > 0)
+            result[s][0]++;
+        else if (difference == 0)
+            result[s][1]++;
+        else
+            result[s][2]++;
+    }
+
+    private void report() {
+        long total[] = new long[7];
+
+        System.out.printf("%6s %6s %6s %6s %16s %14s %14s%n", "size", "wins", "draws", "losses",
+                          "score A, %", "A move, ms", "B move, ms");
+
+        for (int s = 0; s < sizes.length; s++) {
+            for (int k = 0; k < total.length; k++)
+                total[k] += result[s][k];
+
+            this.printRow(Integer.toString(sizes[s]), result[s]);
+        }
+
+        if (sizes.length > 1)
+            this.printRow("all", total);
+
+        double score = calculateScore(total);
+        double error = calculateError(total);
+        System.out.printf("elo A - B: %.0f [%.0f, %.0f], max move A %.1f ms, B %.1f ms%n",
+                          calculateElo(score), calculateElo(score - error), calculateElo(score + error),
+                          maxLatency[0] / 1e6, maxLatency[1] / 1e6);
+    }
+
+    private void printRow(String size, long row[]) {
+        double score = calculateScore(row);
+        double error = calculateError(row);
+
+        System.out.printf("%6s %6d %6d %6d %8.1f +- %4.1f %14.2f %14.2f%n", size, row[0], row[1], row[2],
+                          100 * score, 100 * error, row[4] / 1e6 / Math.max(1, row[3]),
+                          row[6] / 1e6 / Math.max(1, row[5]));
+    }
+
+    private static double calculateScore(long row[]) {
+        long count = row[0] + row[1] + row[2];
+
+        return count == 0 ? 0.5 : (row[0] + 0.5 * row[1]) / count;
+    }
+
+    /* half width of the 95% confidence interval of the score */
+    private static double calculateError(long row[]) {
+        long count = row[0] + row[1] + row[2];
+        if (count < 2)
+            return 0.5;
+
+        double score = calculateScore(row);
+        double variance = (row[0] * (1 - score) * (1 - score) + row[1] * (0.5 - score) * (0.5 - score)
+                         + row[2] * score * score) / (count - 1);
+
+        return Z_95 * Math.sqrt(variance / count);
+    }
+
+    private static double calculateElo(double score) {
+        score = Math.max(1e-3, Math.min(1 - 1e-3, score));
+
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+}
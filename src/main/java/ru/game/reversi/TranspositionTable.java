@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+/*
+ * Fixed-size hash table of search results. Every entry is two longs: the
+ * position hash xor-ed with the data word, and the data word itself, so a
+ * torn write from another thread is seen as a miss. Four entries share a
+ * bucket; a new result replaces the entry from an older search or with the
+ * smallest depth.
+ *
+ * Data word: bits 0-10 move + 1, 11-18 depth, 19-20 bound, 21-28 age,
+ * 32-63 score.
+ */
+public class TranspositionTable {
+
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private static final int BUCKET = 4;
+
+    private long table[];
+    private int mask;
+    private volatile int age;
+
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max((long)megabytes << 20, 1 << 10) / 16;
+        int buckets = Integer.highestOneBit((int)Math.min(entries / BUCKET, 1 << 26));
+
+        table = new long[2 * BUCKET * buckets];
+        mask = buckets - 1;
+    }
+
+    public static int getMove(long data) {
+        return (int)(data & 0x7ff) - 1;
+    }
+
+    public static int getDepth(long data) {
+        return (int)(data >>> 11) & 0xff;
+    }
+
+    public static int getBound(long data) {
+        return (int)(data >>> 19) & 0x3;
+    }
+
+    public static int getScore(long data) {
+        return (int)(data >> 32);
+    }
+
+    private static int getAge(long data) {
+        return (int)(data >>> 21) & 0xff;
+    }
+
+    public long probe(long hash) {
+        int index = ((int)(hash >>> 32) & mask) * 2 * BUCKET;
+
+        for (int k = index; k < index + 2 * BUCKET; k += 2) {
+            long data = table[k + 1];
+
+            if ((table[k] ^ data) == hash && data != 0)
+                return data;
+        }
+
+        return 0;
+    }
+
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int index = ((int)(hash >>> 32) & mask) * 2 * BUCKET;
+        int slot = index;
+        int slotValue = Integer.MAX_VALUE;
+
+        for (int k = index; k < index + 2 * BUCKET; k += 2) {
+            long data = table[k + 1];
+
+            if ((table[k] ^ data) == hash && data != 0) {
+                if (depth < getDepth(data) && bound != BOUND_EXACT && getAge(data) == age)
+                    return;
+
+                if (move < 0)
+                    move = getMove(data);
+
+                slot = k;
+                break;
+            }
+
+            int value = data == 0 ? -1 : getDepth(data) + (getAge(data) == age ? 256 : 0);
+            if (value < slotValue) {
+                slot = k;
+                slotValue = value;
+            }
+        }
+
+        long data = (long)(move + 1)
+                  | (long)Math.min(depth, 0xff) << 11
+                  | (long)bound << 19
+                  | (long)age << 21
+                  | (long)score << 32;
+
+        table[slot] = hash ^ data;
+        table[slot + 1] = data;
+    }
+
+    /*
+     * Called once per move by the owner of the table, before any search on
+     * it starts; the searches themselves only read the age.
+     */
+    public void nextAge() {
+        age = (age + 1) & 0xff;
+    }
+
+    public void clear() {
+        for (int k = 0; k < table.length; k++)
+            table[k] = 0;
+
+        age = 0;
+    }
+
+    public int getSizeInMegabytes() {
+        return (int)((long)table.length * 8 >> 20);
+    }
+
+}
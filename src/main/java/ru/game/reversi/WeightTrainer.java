@@ -0,0 +1,216 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.io.IOException;
+import  java.io.UncheckedIOException;
+import  java.nio.ShortBuffer;
+import  java.util.SplittableRandom;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.EndgameSolver;
+import  ru.game.reversi.PatternEvaluator;
+import  ru.game.reversi.Patterns;
+import  ru.game.reversi.Position;
+import  ru.game.reversi.SamplePosition;
+import  ru.game.reversi.Search;
+import  ru.game.reversi.SmallBitBoard;
+import  ru.game.reversi.TranspositionTable;
+
+/*
+ * Fits the pattern weights to self-play positions. Games start from random
+ * openings and are played by a fixed-depth search with the current
+ * weights, and by the endgame solver from SOLVE_EMPTIES on. Every position
+ * is labelled with the score of the search or the solver that played it,
+ * the weights are fitted to these scores by gradient descent and written
+ * in the format read by PatternEvaluator.
+ *
+ * usage: weights [file] [games] [depth] [epochs]
+ */
+public class WeightTrainer {
+
+    private static final int OPENING_PLIES = 10;
+    private static final int SOLVE_EMPTIES = 14;
+    private static final double LEARNING_RATE = 0.005;
+    private static final int MIN_OCCURRENCES = 20;
+
+    private long black[];
+    private long white[];
+    private int target[];
+    private int count;
+
+    public static void run(String args[]) {
+        String file = args.length > 1 ? args[1] : "reversi.weights";
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int epochs = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+        ShortBuffer weights = PatternEvaluator.loadWeights(file);
+        WeightTrainer trainer = new WeightTrainer(games * 64);
+
+        long start = System.nanoTime();
+        trainer.play(weights, games, depth);
+        System.out.printf("%d games, %d positions, %.1f s%n", games, trainer.count, (System.nanoTime() - start) / 1e9);
+
+        short table[] = trainer.fit(weights, epochs);
+
+        try {
+            PatternEvaluator.saveWeights(ShortBuffer.wrap(table), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.println("weights written to " + file);
+    }
+
+    private WeightTrainer(int capacity) {
+        black = new long[capacity];
+        white = new long[capacity];
+        target = new int[capacity];
+    }
+
+    private void play(ShortBuffer weights, int games, int depth) {
+        TranspositionTable table = new TranspositionTable(16);
+        Search search = new Search(new PatternEvaluator(weights), table);
+        search.setDepthLimit(depth);
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(16));
+
+        for (int g = 0; g < games; g++) {
+            SamplePosition opening = SamplePosition.create(Patterns.SIZE, OPENING_PLIES, g + 1);
+            SmallBitBoard board = (SmallBitBoard)BitBoard.create(opening.getPosition(), opening.getColor());
+
+            while (true) {
+                if (board.calculateMobility() == 0) {
+                    if (board.calculateOpponentMobility() == 0)
+                        break;
+
+                    board.pass();
+                    continue;
+                }
+
+                boolean blackToMove = board.getColor() == Position.BLACK;
+                long player = board.getPlayer();
+                long opponent = board.getOpponent();
+                int move;
+                int score;
+
+                if (board.getEmptyCount() <= SOLVE_EMPTIES) {
+                    move = solver.solve(board);
+                    score = solver.getBestScore();
+                } else {
+                    table.nextAge();
+                    move = search.search(board);
+                    score = search.getDepth() > 0 ? search.getBestScore() : Search.INFINITY;
+                }
+
+                if (score != Search.INFINITY) {
+                    black[count] = blackToMove ? player : opponent;
+                    white[count] = blackToMove ? opponent : player;
+                    target[count] = blackToMove ? score : -score;
+                    count++;
+                }
+
+                board.play(move);
+            }
+        }
+    }
+
+    private void shuffle() {
+        SplittableRandom random = new SplittableRandom(count);
+
+        for (int k = count - 1; k > 0; k--) {
+            int l = random.nextInt(k + 1);
+            long stone = black[k];
+            black[k] = black[l];
+            black[l] = stone;
+            stone = white[k];
+            white[k] = white[l];
+            white[l] = stone;
+            int score = target[k];
+            target[k] = target[l];
+            target[l] = score;
+        }
+    }
+
+    private int calculateBase(int k) {
+        int empty = Patterns.SIZE * Patterns.SIZE - Long.bitCount(black[k] | white[k]);
+
+        return PatternEvaluator.calculatePhase(empty) * Patterns.TABLE_SIZE;
+    }
+
+    private short[] fit(ShortBuffer weights, int epochs) {
+        double table[] = new double[PatternEvaluator.PHASES * Patterns.TABLE_SIZE];
+        int index[] = new int[Patterns.INSTANCE_COUNT];
+        int offset[] = new int[Patterns.INSTANCE_COUNT];
+
+        for (int k = 0; k < table.length; k++)
+            table[k] = weights.get(k);
+
+        for (int n = 0; n < offset.length; n++)
+            offset[n] = Patterns.getOffset(n);
+
+        this.shuffle();
+
+        int occurrences[] = new int[table.length];
+        for (int k = 0; k < count; k++) {
+            int base = this.calculateBase(k);
+
+            Patterns.calculateIndices(black[k], white[k], index);
+            for (int n = 0; n < index.length; n++)
+                occurrences[base + offset[n] + index[n]]++;
+        }
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            double error = 0;
+
+            for (int k = 0; k < count; k++) {
+                int base = this.calculateBase(k);
+                int mobility = Long.bitCount(SmallBitBoard.calculateMoves(black[k], white[k], -1L))
+                             - Long.bitCount(SmallBitBoard.calculateMoves(white[k], black[k], -1L));
+                double score = PatternEvaluator.getMobilityWeight() * mobility;
+
+                Patterns.calculateIndices(black[k], white[k], index);
+                for (int n = 0; n < index.length; n++)
+                    score += table[base + offset[n] + index[n]];
+
+                double delta = target[k] - score;
+                error += delta * delta;
+
+                for (int n = 0; n < index.length; n++) {
+                    if (occurrences[base + offset[n] + index[n]] >= MIN_OCCURRENCES)
+                        table[base + offset[n] + index[n]] += LEARNING_RATE * delta;
+                }
+            }
+
+            System.out.printf("epoch %d, error %.2f discs%n", epoch + 1,
+                              Math.sqrt(error / Math.max(1, count)) / Search.SCORE_DISC);
+        }
+
+        short result[] = new short[table.length];
+        for (int k = 0; k < table.length; k++)
+            result[k] = (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(table[k])));
+
+        return result;
+    }
+
+}
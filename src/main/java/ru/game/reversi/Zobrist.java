@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ * Copyright (c) 2024 Grigorii Zherlitsyn
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+*/
+
+package ru.game.reversi;
+
+import  java.util.SplittableRandom;
+import  ru.game.reversi.BitBoard;
+import  ru.game.reversi.Position;
+
+/*
+ * Random keys for hashing positions of any supported size. A square key
+ * is indexed by color and i * size + j, WHITE to move adds the side key.
+ */
+public class Zobrist {
+
+    public static final int MAX_SQUARES = 32 * 32;
+
+    private static final long KEY[][] = new long[2][MAX_SQUARES];
+    private static final long FLIP[] = new long[MAX_SQUARES];
+    private static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5eed5eedL);
+
+        for (int square = 0; square < MAX_SQUARES; square++) {
+            KEY[Position.BLACK][square] = random.nextLong();
+            KEY[Position.WHITE][square] = random.nextLong();
+            FLIP[square] = KEY[Position.BLACK][square] ^ KEY[Position.WHITE][square];
+        }
+
+        SIDE = random.nextLong();
+    }
+
+    public static long getKey(int color, int square) {
+        return KEY[color][square];
+    }
+
+    public static long getFlipKey(int square) {
+        return FLIP[square];
+    }
+
+    public static long getSideKey() {
+        return SIDE;
+    }
+
+    public static long calculateHash(BitBoard board) {
+        int size = board.getSize();
+        long hash = board.getColor() == Position.WHITE ? SIDE : 0;
+
+        for (int square = 0; square < size * size; square++) {
+            int color = board.getStone(square);
+
+            if (color != Position.EMPTY)
+                hash ^= KEY[color][square];
+        }
+
+        return hash;
+    }
+
+    public static long calculateHash(Position position, int color) {
+        int size = position.getSize();
+        long hash = color == Position.WHITE ? SIDE : 0;
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (position.isStoneOn(i, j))
+                    hash ^= KEY[position.getColor(i, j)][i * size + j];
+            }
+        }
+
+        return hash;
+    }
+
+}